@@ -0,0 +1,129 @@
+package bot;
+
+import java.util.concurrent.CompletableFuture;
+
+import model.Game;
+import model.Move;
+import model.Player;
+import model.TurnListener;
+import view.GameObserver;
+
+/**
+ * Plays one seat of a game with a Searcher: a BotThinker in this process, or an ExternalBot in another. On the bot's
+ * own turns it asks for the best move found within the time limit, which arrives on time however busy the search is;
+ * on the other players' turns it hands their position to the searcher, so that it can think ahead. The game enforces a
+ * hard limit a little past the think time, in case the searcher fails to answer at all.
+ *
+ * @author jsnhlbr5
+ */
+public class BackgroundBot implements Player, TurnListener, GameObserver
+{
+    /**
+     * The default time the bot takes over each move, in milliseconds
+     */
+    public static final long DEFAULT_THINK_TIME = 1000;
+    /**
+     * How far past its think time the game waits for the bot before playing the fallback move, in milliseconds
+     */
+    public static final long TIME_LIMIT_MARGIN = 500;
+
+    private final int seat;
+    private final long thinkMillis;
+    private final long nodesPerMove;
+    private final Searcher searcher;
+
+    /**
+     * Creates a bot for a seat of a game, taking the default time over each move and pondering on the other players'
+     * turns. Must be called before the game starts.
+     *
+     * @param g
+     *            the game
+     * @param seat
+     *            the seat index to play
+     */
+    public BackgroundBot(Game g, int seat)
+    {
+        this(g, seat, new BotThinker(System.nanoTime() ^ seat, true), DEFAULT_THINK_TIME);
+    }
+
+    /**
+     * Creates a bot for a seat of a game. Must be called before the game starts, on the thread playing it.
+     *
+     * @param g
+     *            the game
+     * @param seat
+     *            the seat index to play
+     * @param searcher
+     *            finds the bot's moves; it is cancelled when the game ends
+     * @param thinkMillis
+     *            the time to take over each move, in milliseconds
+     */
+    public BackgroundBot(Game g, int seat, Searcher searcher, long thinkMillis)
+    {
+        this(g, seat, searcher, thinkMillis, 0);
+    }
+
+    /**
+     * Creates a bot for a seat of a game that searches a fixed number of nodes for each move, however long that takes,
+     * so that its play doesn't depend on how busy the machine is. Must be called before the game starts, on the thread
+     * playing it.
+     *
+     * @param g
+     *            the game
+     * @param seat
+     *            the seat index to play
+     * @param searcher
+     *            finds the bot's moves; it is cancelled when the game ends
+     * @param thinkMillis
+     *            the time to take over each move, in milliseconds; ignored if nodesPerMove is set
+     * @param nodesPerMove
+     *            the number of nodes to search for each move, or 0 to search for thinkMillis instead
+     */
+    public BackgroundBot(Game g, int seat, Searcher searcher, long thinkMillis, long nodesPerMove)
+    {
+        this.seat = seat;
+        this.thinkMillis = thinkMillis;
+        this.nodesPerMove = nodesPerMove;
+        this.searcher = searcher;
+        g.setPlayer(seat, this, (nodesPerMove > 0) ? 0 : thinkMillis + TIME_LIMIT_MARGIN);
+        g.addTurnListener(this);
+        g.addObserver(this);
+    }
+
+    /**
+     * Hands the position the other players face to the searcher.
+     */
+    @Override
+    public void turnStarted(Game g)
+    {
+        if (g.getCurPlayer() != seat)
+            searcher.setPosition(new Position(g));
+    }
+
+    /**
+     * Searches the position for the best move found within the think time, or node budget.
+     */
+    @Override
+    public CompletableFuture<Move> chooseMove(Game g)
+    {
+        SearchControl control = (nodesPerMove > 0) ? SearchControl.ofNodes(nodesPerMove)
+                : SearchControl.within(thinkMillis);
+        searcher.search(new Position(g), control);
+        return control.getResult();
+    }
+
+    @Override
+    public boolean isInteractive()
+    {
+        return false;
+    }
+
+    /**
+     * Stops the search once the game is over.
+     */
+    @Override
+    public void gameEnd(String winner)
+    {
+        searcher.cancel();
+    }
+}
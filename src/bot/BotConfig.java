@@ -0,0 +1,137 @@
+package bot;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import model.Game;
+
+/**
+ * How a bot plays in matches and tuning runs: the evaluator it judges positions with, and how much it searches for each
+ * move. Bots built from a config don't ponder, so that each one's strength doesn't depend on how busy the others keep
+ * the machine.
+ *
+ * @author jsnhlbr5
+ */
+public final class BotConfig
+{
+    private final String name;
+    private final Evaluator evaluator;
+    private final long nodesPerMove;
+    private final long thinkMillis;
+
+    /**
+     * Creates a config
+     *
+     * @param name
+     *            the name the bot plays under
+     * @param evaluator
+     *            the bot's evaluator
+     * @param nodesPerMove
+     *            the number of nodes to search for each move, or 0 to search for thinkMillis instead
+     * @param thinkMillis
+     *            the time to take over each move, in milliseconds; ignored if nodesPerMove is set
+     */
+    public BotConfig(String name, Evaluator evaluator, long nodesPerMove, long thinkMillis)
+    {
+        this.name = name;
+        this.evaluator = evaluator;
+        this.nodesPerMove = nodesPerMove;
+        this.thinkMillis = thinkMillis;
+    }
+
+    /**
+     * Reads a config from the command line: a name, then any of <code>nodes=&lt;n&gt;</code> (the default, 2000),
+     * <code>millis=&lt;n&gt;</code>, <code>weights=&lt;w&gt;:&lt;w&gt;:...</code> with all the evaluator's weights, or
+     * <code>tuned=&lt;file&gt;</code> for the weights in a WeightTuner checkpoint, separated by commas; for example
+     * <code>run1,nodes=5000,tuned=run1.properties</code>
+     *
+     * @param spec
+     *            the config
+     * @return the config
+     * @throws IOException
+     *             if a checkpoint can't be read
+     * @throws IllegalArgumentException
+     *             if the config is malformed
+     */
+    public static BotConfig parse(String spec) throws IOException
+    {
+        String[] parts = spec.split(",");
+        long nodes = 0, millis = 0;
+        double[] weights = Evaluator.getDefaultWeights();
+        for (int i = 1; i < parts.length; ++i)
+        {
+            int eq = parts[i].indexOf('=');
+            String key = (eq < 0) ? parts[i] : parts[i].substring(0, eq).trim();
+            String value = (eq < 0) ? "" : parts[i].substring(eq + 1).trim();
+            switch (key)
+            {
+            case "nodes":
+                nodes = Long.parseLong(value);
+                break;
+            case "millis":
+                millis = Long.parseLong(value);
+                break;
+            case "weights":
+                String[] w = value.split(":");
+                if (w.length != Evaluator.WEIGHTS)
+                    throw new IllegalArgumentException("Expected " + Evaluator.WEIGHTS + " weights in " + spec);
+                for (int j = 0; j < w.length; ++j)
+                {
+                    weights[j] = Double.parseDouble(w[j]);
+                }
+                break;
+            case "tuned":
+                weights = WeightTuner.readWeights(Paths.get(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown setting \"" + key + "\" in " + spec);
+            }
+        }
+        if (nodes == 0 && millis == 0)
+            nodes = 2000;
+        return new BotConfig(parts[0].trim(), new Evaluator(weights), nodes, millis);
+    }
+
+    /**
+     * Returns the name the bot plays under
+     *
+     * @return the bot's name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the bot's evaluator
+     *
+     * @return the bot's evaluator
+     */
+    public Evaluator getEvaluator()
+    {
+        return evaluator;
+    }
+
+    /**
+     * Seats a bot with this config at a game. Must be called before the game starts, on the thread playing it.
+     *
+     * @param g
+     *            the game
+     * @param seat
+     *            the seat index
+     * @param seed
+     *            the seed for the bot's search
+     * @return the bot
+     */
+    public BackgroundBot seat(Game g, int seat, long seed)
+    {
+        return new BackgroundBot(g, seat, new BotThinker(seed, false, evaluator), thinkMillis, nodesPerMove);
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " (" + ((nodesPerMove > 0) ? nodesPerMove + " nodes" : thinkMillis + " ms") + " per move, "
+                + evaluator + ")";
+    }
+}
@@ -0,0 +1,247 @@
+package bot;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import metrics.BotSearchEvent;
+import model.BackgroundExecutor;
+
+/**
+ * Runs a bot's search on the shared background executor, so that it never holds up the thread playing the game. The
+ * search runs in short slices, each resubmitted to the executor, so a bot never ties up one of its threads for long.
+ * Between its own turns the bot keeps searching the position the other players face ("pondering"); when their move
+ * lands, the part of the tree below it is kept, so the bot's reply starts with that search already done.
+ *
+ * Every method may be called from any thread; the calls are queued and carried out in order by the search.
+ *
+ * @author jsnhlbr5
+ */
+public class BotThinker implements Searcher
+{
+    // The longest a slice runs before handing its thread back to the executor
+    private static final long SLICE_NANOS = 10000000L;
+    // Iterations run between checks of the clock and the command queue
+    private static final int ITERATIONS_PER_CHECK = 32;
+    /**
+     * The most nodes a tree may grow to while pondering, a few tens of MB; the search stops there until it is given a
+     * move to make or a new position
+     */
+    private static final int PONDER_NODE_LIMIT = 1 << 18;
+
+    private final boolean ponder;
+    private final Evaluator evaluator;
+    private final ConcurrentLinkedQueue<Runnable> commands;
+    // True while a slice is queued or running
+    private final AtomicBoolean scheduled;
+    private final Runnable slice;
+    private volatile boolean cancelled;
+
+    // Only touched by the search
+    private final Random rng;
+    private MctsTree tree;
+    // The search being answered, if any, and the iterations and slices run for it
+    private SearchControl control;
+    private long searched;
+    private int slices;
+
+    /**
+     * Creates a thinker
+     *
+     * @param seed
+     *            the seed for the search's random choices
+     * @param ponder
+     *            true to keep searching while it's not the bot's turn
+     */
+    public BotThinker(long seed, boolean ponder)
+    {
+        this(seed, ponder, new Evaluator());
+    }
+
+    /**
+     * Creates a thinker that judges positions with the given evaluator
+     *
+     * @param seed
+     *            the seed for the search's random choices
+     * @param ponder
+     *            true to keep searching while it's not the bot's turn
+     * @param evaluator
+     *            judges the positions at the end of the round
+     */
+    public BotThinker(long seed, boolean ponder, Evaluator evaluator)
+    {
+        this.ponder = ponder;
+        this.evaluator = evaluator;
+        rng = new Random(seed);
+        commands = new ConcurrentLinkedQueue<Runnable>();
+        scheduled = new AtomicBoolean();
+        slice = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runSlice();
+            }
+        };
+    }
+
+    /**
+     * Gives the search the position at the start of a turn. If it follows from the position being searched by one
+     * move, the search below that move is kept. Any move being thought about for the previous position is abandoned.
+     *
+     * @param p
+     *            the new position; it must not be modified afterwards
+     */
+    @Override
+    public void setPosition(final Position p)
+    {
+        command(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (tree == null)
+                    tree = new MctsTree(p, rng, evaluator);
+                else
+                    tree.advance(p);
+                answer();
+            }
+        });
+    }
+
+    /**
+     * Searches the given position for the player to move, within the control's limits, reusing any search already
+     * done on it. Searching carries on (pondering) after the answer has been given.
+     */
+    @Override
+    public void search(Position p, final SearchControl c)
+    {
+        c.start(p);
+        setPosition(p);
+        command(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                control = c;
+                searched = 0;
+                slices = 0;
+            }
+        });
+    }
+
+    /**
+     * Stops the search for good; a search being answered is cancelled.
+     */
+    @Override
+    public void cancel()
+    {
+        cancelled = true;
+        commands.clear();
+        command(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (control != null)
+                    control.cancel();
+                control = null;
+            }
+        });
+    }
+
+    /**
+     * Queues a command for the search and makes sure a slice will run it
+     *
+     * @param r
+     *            the command
+     */
+    private void command(Runnable r)
+    {
+        commands.add(r);
+        schedule();
+    }
+
+    /**
+     * Answers the search being answered (if any) with the best move reported so far
+     */
+    private void answer()
+    {
+        if (control != null)
+            control.finish();
+        control = null;
+    }
+
+    /**
+     * Submits a slice to the executor, unless one is already queued or running
+     */
+    private void schedule()
+    {
+        if (scheduled.compareAndSet(false, true))
+            BackgroundExecutor.get().execute(slice);
+    }
+
+    /**
+     * Carries out the queued commands, then searches until the slice is used up, the deadline passes or another
+     * command arrives, replying if the deadline has passed. Resubmits itself while there is more to do.
+     */
+    private void runSlice()
+    {
+        boolean more = false;
+        try
+        {
+            Runnable r;
+            while ((r = commands.poll()) != null)
+            {
+                r.run();
+            }
+            if (cancelled || tree == null || !tree.isSearchable() || (control == null && !ponder))
+                return;
+
+            long end = System.nanoTime() + SLICE_NANOS;
+            boolean grow = control != null || tree.size() < PONDER_NODE_LIMIT;
+            BotSearchEvent event = null;
+            if (control != null)
+            {
+                event = new BotSearchEvent();
+                event.begin();
+            }
+            do
+            {
+                for (int i = 0; i < ITERATIONS_PER_CHECK; ++i)
+                {
+                    tree.iterate(grow);
+                }
+                searched += ITERATIONS_PER_CHECK;
+            }
+            while (System.nanoTime() - end < 0 && commands.isEmpty() && !cancelled
+                    && (control == null || !control.shouldStop(searched)));
+
+            if (control != null)
+            {
+                int best = tree.bestMove();
+                control.report(Position.toMove(best), searched);
+                event.end();
+                if (event.shouldCommit())
+                {
+                    event.bot = "MCTS";
+                    event.playerCount = tree.getRoot().players;
+                    event.iteration = ++slices;
+                    event.nodesSearched = searched;
+                    event.bestMove = Position.toMove(best).toString();
+                    event.commit();
+                }
+                if (control.shouldStop(searched))
+                    answer();
+            }
+            more = control != null || (ponder && tree.size() < PONDER_NODE_LIMIT);
+        }
+        finally
+        {
+            scheduled.set(false);
+            // A command may have been queued after the queue was drained, while this slice still counted as scheduled
+            if (more || !commands.isEmpty())
+                schedule();
+        }
+    }
+}
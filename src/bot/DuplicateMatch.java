@@ -0,0 +1,146 @@
+package bot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compares two to four bots by duplicate play: every deal is played once for each way of seating them, and each bot is
+ * judged by how far its score on a deal is above the mean of all of theirs. The deal's luck is shared by everyone, so
+ * it largely drops out of the margins, and their standard errors shrink to a fraction of what the same number of single
+ * games would give. Usage:
+ *
+ * <pre>
+ * java bot.DuplicateMatch &lt;config&gt; &lt;config&gt; [&lt;config&gt; [&lt;config&gt;]]
+ * </pre>
+ *
+ * with each config as read by BotConfig.parse(), the number of deals set by the system property azul.duplicate.deals
+ * (default 100), and the number of deals in play at once by azul.duplicate.concurrency (default enough to give each
+ * core about one game). Every game of a deal is played at once, and four bots play 24 games a deal, so bots that
+ * search for a time rather than a number of nodes are best compared two or three at a time.
+ *
+ * @author jsnhlbr5
+ */
+public class DuplicateMatch
+{
+    /**
+     * This class cannot be instantiated; all of its members are static
+     */
+    private DuplicateMatch()
+    {
+    }
+
+    /**
+     * Plays the match and prints each bot's results, with the standard error of each mean
+     *
+     * @param args
+     *            the configs, one per bot
+     * @throws IOException
+     *             if a config's checkpoint can't be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2 || args.length > 4)
+        {
+            System.err.println("Usage: java bot.DuplicateMatch <config> <config> [<config> [<config>]]");
+            System.exit(1);
+        }
+        BotConfig[] bots = new BotConfig[args.length];
+        for (int i = 0; i < args.length; ++i)
+        {
+            bots[i] = BotConfig.parse(args[i]);
+        }
+        int deals = Integer.getInteger("azul.duplicate.deals", 100);
+        int gamesPerDeal = 1;
+        for (int i = 2; i <= bots.length; ++i)
+        {
+            gamesPerDeal *= i;
+        }
+        int concurrency = Integer.getInteger("azul.duplicate.concurrency",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / gamesPerDeal));
+        Random rng = new Random();
+
+        // A deal is started as each one finishes, so that timed searches aren't starved by a backlog of games
+        List<CompletableFuture<SelfPlay.DealResult>> results = new ArrayList<CompletableFuture<SelfPlay.DealResult>>(
+                deals);
+        while (results.size() < Math.min(deals, concurrency))
+        {
+            results.add(SelfPlay.playDuplicate(rng.nextLong(), bots));
+        }
+        // Per bot: sums and sums of squares of the deal margins, deal mean scores and deal points
+        double[][] margin = new double[bots.length][2];
+        double[][] score = new double[bots.length][2];
+        double[][] points = new double[bots.length][2];
+        int games = 0;
+        for (int d = 0; d < deals; ++d)
+        {
+            SelfPlay.DealResult r = results.get(d).join();
+            if (results.size() < deals)
+                results.add(SelfPlay.playDuplicate(rng.nextLong(), bots));
+            games += r.getGames();
+            for (int i = 0; i < bots.length; ++i)
+            {
+                accumulate(margin[i], r.getMargin(i));
+                accumulate(score[i], r.getScore(i));
+                accumulate(points[i], r.getPoints(i));
+            }
+            if ((d + 1) % 10 == 0)
+                System.out.println((d + 1) + " of " + deals + " deals played");
+        }
+
+        System.out.println(deals + " deals, " + games + " games");
+        for (int i = 0; i < bots.length; ++i)
+        {
+            System.out.printf("%s: margin %+.2f +/- %.2f, score %.2f +/- %.2f, points %.3f +/- %.3f%n", bots[i],
+                    mean(margin[i], deals), standardError(margin[i], deals), mean(score[i], deals),
+                    standardError(score[i], deals), mean(points[i], deals), standardError(points[i], deals));
+        }
+    }
+
+    /**
+     * Adds a value to a running sum and sum of squares
+     *
+     * @param sums
+     *            the sum and the sum of squares
+     * @param x
+     *            the value
+     */
+    private static void accumulate(double[] sums, double x)
+    {
+        sums[0] += x;
+        sums[1] += x * x;
+    }
+
+    /**
+     * Returns the mean of the values summed
+     *
+     * @param sums
+     *            the sum and the sum of squares
+     * @param n
+     *            the number of values
+     * @return the mean
+     */
+    private static double mean(double[] sums, int n)
+    {
+        return sums[0] / n;
+    }
+
+    /**
+     * Returns the standard error of the mean of the values summed
+     *
+     * @param sums
+     *            the sum and the sum of squares
+     * @param n
+     *            the number of values
+     * @return the standard error, or 0 for fewer than two values
+     */
+    private static double standardError(double[] sums, int n)
+    {
+        if (n < 2)
+            return 0;
+        double m = sums[0] / n;
+        return Math.sqrt(Math.max(0, (sums[1] - n * m * m) / (n - 1)) / n);
+    }
+}
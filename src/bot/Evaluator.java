@@ -0,0 +1,302 @@
+package bot;
+
+import java.util.Arrays;
+
+import model.PlayerBoard;
+
+/**
+ * A heuristic value for each player's board, for judging positions the search can't play out: a round's end, or
+ * wherever a depth-limited search stops. A board is worth its score, plus weighted estimates of what it stands to gain:
+ * <ul>
+ * <li>the points for the full build rows, which will be tiled at the round's end, and the floor line's penalty</li>
+ * <li>the points the part-filled build rows would score if completed, in proportion to how full they are</li>
+ * <li>the empty wall spaces next to tiled ones, where later tiles will score more</li>
+ * <li>progress toward the end-of-game bonuses for rows, columns and colors</li>
+ * </ul>
+ * Every line of the wall (row, column or color) is a 5-bit mask, and everything about a line is read from a table
+ * indexed by its mask, so a board costs a few dozen table reads and no loops over tiles.
+ *
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author jsnhlbr5
+ */
+public final class Evaluator
+{
+    /**
+     * The index of the weight on the points part-filled build rows would score
+     */
+    public static final int BUILD_ROW = 0;
+    /**
+     * The index of the weight on the points full build rows will score at the round's end
+     */
+    public static final int FULL_ROW = 1;
+    /**
+     * The index of the weight on empty wall spaces next to tiled ones
+     */
+    public static final int ADJACENCY = 2;
+    /**
+     * The index of the weight on the floor line's penalty
+     */
+    public static final int FLOOR = 3;
+    /**
+     * The index of the weight on progress toward the complete row bonus
+     */
+    public static final int ROW_BONUS = 4;
+    /**
+     * The index of the weight on progress toward the complete column bonus
+     */
+    public static final int COLUMN_BONUS = 5;
+    /**
+     * The index of the weight on progress toward the complete color bonus
+     */
+    public static final int COLOR_BONUS = 6;
+    /**
+     * The number of weights
+     */
+    public static final int WEIGHTS = 7;
+
+    private static final String[] weightNames = { "buildRow", "fullRow", "adjacency", "floor", "rowBonus",
+            "columnBonus", "colorBonus" };
+    private static final double[] defaultWeights = { 0.6, 1.0, 0.3, 1.0, 0.5, 0.5, 0.5 };
+
+    // Indexed [mask][i]: the length of the run of tiles through position i of a line, once i is tiled
+    private static final int[][] runLength = new int[32][5];
+    // Indexed by mask: the empty positions of a line next to a tiled one
+    private static final int[] openNeighbors = new int[32];
+    // Indexed by mask: the fraction of a line's bonus to credit, growing with the square of its tile count
+    private static final double[] bonusProgress = new double[32];
+    // Indexed [row][mask]: a wall row's tiles, as bits (column * 5 + row) of the wall's column masks...
+    private static final int[][] rowToColumns = new int[5][32];
+    // ...and as bits (color * 5 + row) of its color masks
+    private static final int[][] rowToColors = new int[5][32];
+
+    static
+    {
+        for (int m = 0; m < 32; ++m)
+        {
+            int tiles = Integer.bitCount(m);
+            bonusProgress[m] = tiles * tiles / 25.0;
+            for (int i = 0; i < 5; ++i)
+            {
+                int len = 1;
+                for (int j = i + 1; j < 5 && (m & (1 << j)) != 0; ++j)
+                {
+                    ++len;
+                }
+                for (int j = i - 1; j >= 0 && (m & (1 << j)) != 0; --j)
+                {
+                    ++len;
+                }
+                runLength[m][i] = len;
+                boolean empty = (m & (1 << i)) == 0;
+                if (empty && ((i > 0 && (m & (1 << (i - 1))) != 0) || (i < 4 && (m & (1 << (i + 1))) != 0)))
+                    ++openNeighbors[m];
+            }
+            for (int r = 0; r < 5; ++r)
+            {
+                for (int c = 0; c < 5; ++c)
+                {
+                    if ((m & (1 << c)) != 0)
+                    {
+                        rowToColumns[r][m] |= 1 << (c * 5 + r);
+                        rowToColors[r][m] |= 1 << (((c - r + 5) % 5) * 5 + r);
+                    }
+                }
+            }
+        }
+    }
+
+    private final double[] weights;
+
+    /**
+     * Creates an evaluator with the default weights
+     */
+    public Evaluator()
+    {
+        this(defaultWeights);
+    }
+
+    /**
+     * Creates an evaluator with the given weights
+     *
+     * @param weights
+     *            WEIGHTS weights, indexed by BUILD_ROW, FULL_ROW and the rest
+     */
+    public Evaluator(double[] weights)
+    {
+        if (weights.length != WEIGHTS)
+            throw new IllegalArgumentException("Expected " + WEIGHTS + " weights, got " + weights.length + ".");
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Returns a copy of the default weights
+     *
+     * @return the default weights
+     */
+    public static double[] getDefaultWeights()
+    {
+        return defaultWeights.clone();
+    }
+
+    /**
+     * Returns the name of a weight, for settings files and logs
+     *
+     * @param i
+     *            the weight's index
+     * @return the weight's name
+     */
+    public static String getWeightName(int i)
+    {
+        return weightNames[i];
+    }
+
+    /**
+     * Returns a copy of this evaluator's weights
+     *
+     * @return the weights
+     */
+    public double[] getWeights()
+    {
+        return weights.clone();
+    }
+
+    /**
+     * Returns a player's value less the best of the other players' values; once the game is over, the exact margin of
+     * the final scores
+     *
+     * @param pos
+     *            the position
+     * @param player
+     *            the player's seat index
+     * @return the player's margin
+     */
+    public double evaluate(Position pos, int player)
+    {
+        double best = Double.NEGATIVE_INFINITY;
+        for (int p = 0; p < pos.players; ++p)
+        {
+            if (p != player)
+                best = Math.max(best, value(pos, p));
+        }
+        return value(pos, player) - best;
+    }
+
+    /**
+     * Returns the heuristic value of a player's board; once the game is over, their final score
+     *
+     * @param pos
+     *            the position
+     * @param p
+     *            the player's seat index
+     * @return the board's value, in points
+     */
+    public double value(Position pos, int p)
+    {
+        if (pos.gameOver)
+            return pos.score[p];
+
+        // Tile the full build rows, top to bottom as the round's end does, keeping the wall's columns up to date
+        int wall = pos.wall[p];
+        int columns = 0;
+        for (int r = 0; r < 5; ++r)
+        {
+            columns |= rowToColumns[r][(wall >>> (r * 5)) & 31];
+        }
+        int tiled = 0;
+        for (int r = 0; r < 5; ++r)
+        {
+            int i = p * 5 + r;
+            if (pos.rowCount[i] == r + 1)
+            {
+                int c = (r + pos.rowColor[i]) % 5;
+                wall |= 1 << (r * 5 + c);
+                columns |= 1 << (c * 5 + r);
+                tiled += tileScore(wall, columns, r, c);
+            }
+        }
+        double v = Math.max(0, pos.score[p] + weights[FULL_ROW] * tiled
+                + weights[FLOOR] * PlayerBoard.getFloorLinePenalty(pos.floor[p]));
+
+        // What the part-filled rows would score on the wall as it will be
+        double partial = 0;
+        for (int r = 0; r < 5; ++r)
+        {
+            int i = p * 5 + r;
+            int count = pos.rowCount[i];
+            if (count > 0 && count <= r)
+            {
+                int c = (r + pos.rowColor[i]) % 5;
+                partial += tileScore(wall | (1 << (r * 5 + c)), columns | (1 << (c * 5 + r)), r, c) * count
+                        / (r + 1.0);
+            }
+        }
+
+        int open = 0;
+        double rowBonus = 0, columnBonus = 0, colorBonus = 0;
+        int colors = 0;
+        for (int k = 0; k < 5; ++k)
+        {
+            int row = (wall >>> (k * 5)) & 31;
+            int column = (columns >>> (k * 5)) & 31;
+            open += openNeighbors[row] + openNeighbors[column];
+            rowBonus += bonusProgress[row];
+            columnBonus += bonusProgress[column];
+            colors |= rowToColors[k][row];
+        }
+        for (int k = 0; k < 5; ++k)
+        {
+            colorBonus += bonusProgress[(colors >>> (k * 5)) & 31];
+        }
+
+        return v + weights[BUILD_ROW] * partial + weights[ADJACENCY] * open
+                + weights[ROW_BONUS] * PlayerBoard.ROW_BONUS * rowBonus
+                + weights[COLUMN_BONUS] * PlayerBoard.COLUMN_BONUS * columnBonus
+                + weights[COLOR_BONUS] * PlayerBoard.COLOR_BONUS * colorBonus;
+    }
+
+    /**
+     * Scores a tile on the wall, as Position.scoreTile() does, from the run lengths of its row and column
+     *
+     * @param wall
+     *            the wall mask, including the tile
+     * @param columns
+     *            the wall's column masks, including the tile
+     * @param r
+     *            the tile's row
+     * @param c
+     *            the tile's column
+     * @return the points scored
+     */
+    private static int tileScore(int wall, int columns, int r, int c)
+    {
+        int h = runLength[(wall >>> (r * 5)) & 31][c];
+        int v = runLength[(columns >>> (c * 5)) & 31][r];
+        if (h == 1 && v == 1)
+            return 1;
+        return ((h > 1) ? h : 0) + ((v > 1) ? v : 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("Evaluator[");
+        for (int i = 0; i < WEIGHTS; ++i)
+        {
+            sb.append((i == 0) ? "" : ", ").append(weightNames[i]).append('=').append(weights[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof Evaluator && Arrays.equals(((Evaluator) o).weights, weights);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(weights);
+    }
+}
@@ -0,0 +1,501 @@
+package bot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import model.BackgroundExecutor;
+import model.Color;
+import model.Move;
+
+/**
+ * A bot running as a separate process, spoken to over its standard input and output. The process is started once and
+ * kept for as many moves and games as it is used for, so a bot written in any language pays its start-up cost only
+ * once.
+ *
+ * The protocol is line-based, much like UCI for chess engines. Every line is a command word followed by
+ * space-separated arguments; moves are written as three integers: the factory index (-1 for the center), the color's
+ * ordinal in Color, and the build row (5 for the floor line). The engine sends:
+ * <ul>
+ * <li><code>azul</code> once, after starting the process; the bot answers with any number of
+ * <code>id name &lt;name&gt;</code> lines, then <code>azulok</code></li>
+ * <li><code>newgame</code> before each game, so the bot can forget what it learned about the last one</li>
+ * <li><code>position &lt;position&gt;</code> with the position as written by Position.encode(), immediately followed by
+ * <code>go [millis &lt;n&gt;] [nodes &lt;n&gt;]</code> with the time left and the node budget, if any; the bot answers
+ * with exactly one <code>bestmove &lt;move&gt;</code>, and may send
+ * <code>info [nodes &lt;n&gt;] [move &lt;move&gt;]</code> lines before it</li>
+ * <li><code>stop</code> to ask for the answer now; it is ignored if there is no search to answer</li>
+ * <li><code>quit</code> to end the process, which should also end when its input does</li>
+ * </ul>
+ * Requests are queued and written by a thread of the bot's own, which flushes once it has written every request
+ * queued, so a bot that stops reading its input never holds up the thread asking it for a move. Replies are read by
+ * another thread of the bot's own and matched to requests in order, so a late reply is still consumed and never
+ * mistaken for the answer to a later one.
+ *
+ * @author jsnhlbr5
+ */
+public class ExternalBot implements Searcher, Closeable
+{
+    /**
+     * The longest a bot may take to start and answer the handshake, in milliseconds
+     */
+    public static final long START_TIMEOUT = 10000;
+
+    private static final Logger log = Logger.getLogger(ExternalBot.class.getName());
+    private static final Color[] colors = Color.values();
+    // Queued after the last request, to end the writer
+    private static final String END = new String("end");
+
+    private final Process process;
+    private final BufferedWriter out;
+    // The requests not yet written, oldest first; only the writer thread writes to out
+    private final LinkedBlockingQueue<String> outbox;
+    // The searches sent to the process and not yet answered, oldest first
+    private final ConcurrentLinkedQueue<Request> pending;
+    private final CompletableFuture<Void> ready;
+    // The last search sent, the only one a stop can be meant for; guarded by out
+    private Request lastSent;
+    private volatile String name;
+    private volatile boolean closed;
+    // Set once a write to the process has failed
+    private volatile boolean broken;
+
+    /**
+     * Starts a bot process and waits for it to answer the handshake
+     *
+     * @param command
+     *            the program and its arguments
+     * @throws IOException
+     *             if the process can't be started, or doesn't answer the handshake in time
+     */
+    public ExternalBot(List<String> command) throws IOException
+    {
+        name = command.get(0);
+        pending = new ConcurrentLinkedQueue<Request>();
+        outbox = new LinkedBlockingQueue<String>();
+        ready = new CompletableFuture<Void>();
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        process = pb.start();
+        out = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+        final BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+        Thread reader = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                readReplies(in);
+            }
+        }, "Azul bot reader " + process.pid());
+        reader.setDaemon(true);
+        reader.start();
+        Thread writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                writeRequests();
+            }
+        }, "Azul bot writer " + process.pid());
+        writer.setDaemon(true);
+        writer.start();
+
+        try
+        {
+            send("azul\n");
+            ready.get(START_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException | ExecutionException | TimeoutException | IOException e)
+        {
+            close();
+            throw new IOException("Bot " + command + " did not start", e);
+        }
+    }
+
+    /**
+     * Returns the name the bot gave in the handshake, or its program if it gave none
+     *
+     * @return the bot's name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns true if the process is still running and hasn't been closed
+     *
+     * @return true if the bot can still search
+     */
+    public boolean isAlive()
+    {
+        return !closed && process.isAlive();
+    }
+
+    /**
+     * Tells the bot that a new game is starting
+     *
+     * @throws IOException
+     *             if the process has ended
+     */
+    public void newGame() throws IOException
+    {
+        send("newgame\n");
+    }
+
+    /**
+     * Sends the position and the control's limits to the process. If the control answers first (at its deadline or by
+     * being cancelled), the process is asked to stop; if the process has ended, the control answers at once with the
+     * first legal move. Illegal moves from the process are ignored.
+     */
+    @Override
+    public void search(Position p, final SearchControl c)
+    {
+        c.start(p);
+        StringBuilder sb = new StringBuilder(320);
+        sb.append("position ").append(p.encode()).append("\ngo");
+        long millis = c.getMillisLeft();
+        if (millis >= 0)
+            sb.append(" millis ").append(millis);
+        if (c.getNodeBudget() > 0)
+            sb.append(" nodes ").append(c.getNodeBudget());
+        sb.append('\n');
+
+        // The caller may go on to play moves on p, so legality is checked against a copy
+        final Request r = new Request(new Position(p), c);
+        try
+        {
+            synchronized (out)
+            {
+                pending.add(r);
+                send(sb.toString());
+                lastSent = r;
+            }
+        }
+        catch (IOException e)
+        {
+            pending.remove(r);
+            c.finish();
+            return;
+        }
+        c.getResult().whenCompleteAsync(new BiConsumer<Move, Throwable>()
+        {
+            @Override
+            public void accept(Move m, Throwable t)
+            {
+                try
+                {
+                    synchronized (out)
+                    {
+                        // Once another search has been sent, a stop would cut that one short instead
+                        if (lastSent == r && pending.contains(r))
+                            send("stop\n");
+                    }
+                }
+                catch (IOException e)
+                {
+                    // The reader answers the pending searches when the process ends
+                }
+            }
+        }, BackgroundExecutor.get());
+    }
+
+    /**
+     * Does nothing; the protocol doesn't send the position to a bot until it is the bot's turn.
+     */
+    @Override
+    public void setPosition(Position p)
+    {
+    }
+
+    /**
+     * Asks the process to stop searching; the last search sent is cancelled, and the process's answer to it is read and
+     * dropped. The process is kept for the next game.
+     */
+    @Override
+    public void cancel()
+    {
+        Request r;
+        synchronized (out)
+        {
+            r = lastSent;
+        }
+        if (r != null)
+            r.control.cancel();
+    }
+
+    /**
+     * Asks the process to quit, and ends it if it hasn't after a second. Searches still waiting for it are answered
+     * with what they have.
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+            return;
+        closed = true;
+        outbox.add("quit\n");
+        outbox.add(END);
+        BackgroundExecutor.getScheduler().schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // Only signalled: Process.destroy() would also close the process's input, which waits for a write
+                // stuck on a bot that has stopped reading, and would hold up the timer
+                ProcessHandle handle = process.toHandle();
+                Iterator<ProcessHandle> children = handle.descendants().iterator();
+                while (children.hasNext())
+                {
+                    children.next().destroy();
+                }
+                handle.destroy();
+            }
+        }, 1, TimeUnit.SECONDS);
+        finishPending();
+    }
+
+    /**
+     * Queues one request for the writer thread
+     *
+     * @param request
+     *            the request's lines, each ending in a newline
+     * @throws IOException
+     *             if the bot has been closed, or its process has ended
+     */
+    private void send(String request) throws IOException
+    {
+        if (closed || broken || !process.isAlive())
+            throw new IOException("Bot " + name + " has ended");
+        outbox.add(request);
+    }
+
+    /**
+     * Writes the queued requests until the bot is closed or its process stops reading them, then closes its input
+     */
+    private void writeRequests()
+    {
+        try
+        {
+            String request;
+            while ((request = outbox.take()) != END)
+            {
+                out.write(request);
+                // Requests queued meanwhile go out with this one
+                if (outbox.isEmpty())
+                    out.flush();
+            }
+        }
+        catch (IOException | InterruptedException e)
+        {
+            // The reader answers the pending searches when the process ends
+            broken = true;
+        }
+        finally
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException e)
+            {
+                // Already gone
+            }
+        }
+    }
+
+    /**
+     * Reads the process's replies until it ends, then answers any searches still waiting
+     *
+     * @param in
+     *            the process's output
+     */
+    private void readReplies(BufferedReader in)
+    {
+        try
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                handle(line);
+            }
+        }
+        catch (IOException e)
+        {
+            // The process has ended
+        }
+        finally
+        {
+            ready.completeExceptionally(new IOException("Bot ended"));
+            finishPending();
+        }
+    }
+
+    /**
+     * Acts on one line from the process
+     *
+     * @param line
+     *            the line
+     */
+    private void handle(String line)
+    {
+        String[] t = line.trim().split("\\s+");
+        try
+        {
+            switch (t[0])
+            {
+            case "id":
+                if (t.length > 2 && t[1].equals("name"))
+                    name = line.trim().substring(line.trim().indexOf("name") + 5).trim();
+                break;
+            case "azulok":
+                ready.complete(null);
+                break;
+            case "info":
+            {
+                Request r = pending.peek();
+                if (r == null)
+                    break;
+                long nodes = r.control.getNodesSearched();
+                Move m = null;
+                for (int i = 1; i < t.length; ++i)
+                {
+                    if (t[i].equals("nodes"))
+                        nodes = Long.parseLong(t[++i]);
+                    else if (t[i].equals("move"))
+                    {
+                        m = parseMove(t, i + 1);
+                        i += 3;
+                    }
+                }
+                r.report(m, nodes);
+                break;
+            }
+            case "bestmove":
+            {
+                Request r = pending.poll();
+                if (r == null)
+                    break;
+                try
+                {
+                    r.report(parseMove(t, 1), r.control.getNodesSearched());
+                }
+                finally
+                {
+                    r.control.finish();
+                }
+                break;
+            }
+            default:
+                if (!t[0].isEmpty())
+                    log.log(Level.WARNING, name + ": unknown reply \"" + line + "\"");
+            }
+        }
+        catch (RuntimeException e)
+        {
+            log.log(Level.WARNING, name + ": malformed reply \"" + line + "\"");
+        }
+    }
+
+    /**
+     * Answers every search still waiting for the process with what it has
+     */
+    private void finishPending()
+    {
+        Request r;
+        while ((r = pending.poll()) != null)
+        {
+            r.control.finish();
+        }
+    }
+
+    /**
+     * Writes a move as the protocol does
+     *
+     * @param m
+     *            the move
+     * @return the move's three integers, separated by spaces
+     */
+    static String formatMove(Move m)
+    {
+        return m.source + " " + m.color.ordinal() + " " + m.row;
+    }
+
+    /**
+     * Reads a move written by formatMove()
+     *
+     * @param t
+     *            the words of a line
+     * @param i
+     *            the index of the move's first word
+     * @return the move
+     */
+    static Move parseMove(String[] t, int i)
+    {
+        return new Move(Integer.parseInt(t[i]), colors[Integer.parseInt(t[i + 1])], Integer.parseInt(t[i + 2]));
+    }
+
+    /**
+     * A search sent to the process, with the position it is for
+     *
+     * @author jsnhlbr5
+     */
+    private final class Request
+    {
+        final Position position;
+        final SearchControl control;
+
+        Request(Position position, SearchControl control)
+        {
+            this.position = position;
+            this.control = control;
+        }
+
+        /**
+         * Passes the process's progress on to the control, ignoring moves that aren't legal in the position
+         *
+         * @param m
+         *            the move the process is reporting, or null
+         * @param nodes
+         *            the number of nodes it has searched
+         */
+        void report(Move m, long nodes)
+        {
+            if (m != null && !isLegal(m))
+            {
+                log.log(Level.WARNING, name + ": illegal move " + formatMove(m));
+                m = null;
+            }
+            control.report(m, nodes);
+        }
+
+        private boolean isLegal(Move m)
+        {
+            int[] moves = new int[Position.MAX_MOVES];
+            int n = position.legalMoves(moves);
+            int code = Position.code(m);
+            for (int i = 0; i < n; ++i)
+            {
+                if (moves[i] == code)
+                    return true;
+            }
+            return false;
+        }
+    }
+}
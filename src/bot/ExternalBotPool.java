@@ -0,0 +1,104 @@
+package bot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the processes of one external bot running between games. Each game takes a bot from the pool and gives it back
+ * when it ends; a new process is started only when every one already running is in use, so a match of many games pays
+ * the bot's start-up cost once per game played at the same time rather than once per game.
+ *
+ * @author jsnhlbr5
+ */
+public class ExternalBotPool implements Closeable
+{
+    private final List<String> command;
+    private final ArrayDeque<ExternalBot> idle;
+    private boolean closed;
+
+    /**
+     * Creates an empty pool; no process is started until one is needed
+     *
+     * @param command
+     *            the bot's program and its arguments
+     */
+    public ExternalBotPool(List<String> command)
+    {
+        this.command = new ArrayList<String>(command);
+        idle = new ArrayDeque<ExternalBot>();
+    }
+
+    /**
+     * Takes a bot from the pool, starting one if none is idle, and tells it a new game is starting
+     *
+     * @return a bot, for the caller's use until it is given back
+     * @throws IOException
+     *             if a bot can't be started
+     */
+    public ExternalBot acquire() throws IOException
+    {
+        while (true)
+        {
+            ExternalBot bot;
+            synchronized (this)
+            {
+                if (closed)
+                    throw new IOException("The pool is closed.");
+                bot = idle.pollFirst();
+            }
+            if (bot == null)
+                bot = new ExternalBot(command);
+            try
+            {
+                bot.newGame();
+                return bot;
+            }
+            catch (IOException e)
+            {
+                // It ended while idle; try the next one
+                bot.close();
+            }
+        }
+    }
+
+    /**
+     * Gives a bot back to the pool once its game is over
+     *
+     * @param bot
+     *            the bot
+     */
+    public void release(ExternalBot bot)
+    {
+        synchronized (this)
+        {
+            if (!closed && bot.isAlive())
+            {
+                idle.addFirst(bot);
+                return;
+            }
+        }
+        bot.close();
+    }
+
+    /**
+     * Ends every idle bot's process; bots still in use are ended as they are given back
+     */
+    @Override
+    public void close()
+    {
+        List<ExternalBot> bots;
+        synchronized (this)
+        {
+            closed = true;
+            bots = new ArrayList<ExternalBot>(idle);
+            idle.clear();
+        }
+        for (ExternalBot b : bots)
+        {
+            b.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package bot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import model.Move;
+
+/**
+ * Suggests moves to human players, from a search on the shared background threads. Hints are cached by position for
+ * every game in the process, so a position seen before (another table reaching the same opening, or the same position
+ * turning up again) is answered at once; the cache keeps the most recently used hints, so its size stays bounded
+ * however long the process runs.
+ *
+ * Each hint is searched by a searcher of its own, which nothing but its deadline stops, so a table asking for another
+ * hint or closing never cuts short a hint that another table is waiting for.
+ *
+ * @author jsnhlbr5
+ */
+public final class HintProvider
+{
+    /**
+     * The time spent searching for a hint, in milliseconds (from azul.hintMillis)
+     */
+    public static final long HINT_THINK_TIME = Long.getLong("azul.hintMillis", BackgroundBot.DEFAULT_THINK_TIME);
+    /**
+     * The number of hints kept (from azul.hintCacheSize); each takes well under a kilobyte
+     */
+    private static final int CACHE_SIZE = Integer.getInteger("azul.hintCacheSize", 4096);
+
+    // Shared by every table; a hint is cached as soon as its search starts, so concurrent requests for it share one
+    private static final Map<Position, CompletableFuture<Move>> cache =
+            new LinkedHashMap<Position, CompletableFuture<Move>>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Position, CompletableFuture<Move>> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * This class cannot be instantiated; all of its members are static
+     */
+    private HintProvider()
+    {
+    }
+
+    /**
+     * Returns the best move for the player to move in the given position: at once if it has been asked about before,
+     * otherwise once the search's think time is up. The returned future is shared with other callers asking about the
+     * same position, and must not be completed or cancelled.
+     *
+     * @param p
+     *            the position at the start of a turn; it must not be modified afterwards
+     * @return the suggested move
+     */
+    public static CompletableFuture<Move> getHint(final Position p)
+    {
+        final SearchControl control;
+        final CompletableFuture<Move> hint;
+        synchronized (cache)
+        {
+            CompletableFuture<Move> cached = cache.get(p);
+            if (cached != null)
+                return cached;
+            control = SearchControl.within(HINT_THINK_TIME);
+            hint = control.getResult();
+            cache.put(p, hint);
+        }
+        new BotThinker(System.nanoTime(), false).search(p, control);
+        // A search that failed is forgotten, so that the position is searched again next time
+        hint.whenComplete(new BiConsumer<Move, Throwable>()
+        {
+            @Override
+            public void accept(Move m, Throwable t)
+            {
+                if (m == null || t != null)
+                {
+                    synchronized (cache)
+                    {
+                        cache.remove(p, hint);
+                    }
+                }
+            }
+        });
+        return hint;
+    }
+}
@@ -0,0 +1,291 @@
+package bot;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Plays two bots against each other until a sequential probability ratio test (SPRT) decides between two hypotheses:
+ * that A is no stronger than B by elo0 (H0), or that A is stronger by elo1 (H1). Games are played in pairs on the same
+ * deal with the seats swapped, so each pair scores A 0, 0.5, 1, 1.5 or 2 points, and the test uses the spread of the
+ * pair scores (the "pentanomial" model), which the luck of the deal affects far less than single games. The match stops
+ * as soon as the log-likelihood ratio leaves the bounds set by the error rates, which for a clear difference takes a
+ * small fraction of a fixed-length match.
+ *
+ * Pairs are played several at once on the shared background threads. Usage:
+ *
+ * <pre>
+ * java bot.MatchRunner &lt;config A&gt; &lt;config B&gt;
+ * </pre>
+ *
+ * with each config as read by BotConfig.parse(), and the test set by the system properties azul.match.elo0 (default
+ * 0), azul.match.elo1 (default 20), azul.match.alpha and azul.match.beta (default 0.05), azul.match.maxPairs (default
+ * 5000) and azul.match.concurrency (the number of pairs in play at once; default one per core).
+ *
+ * @author jsnhlbr5
+ */
+public class MatchRunner
+{
+    /**
+     * The outcome of a match
+     */
+    public enum Verdict
+    {
+        /** A is stronger than B by at least elo1 */
+        H1,
+        /** A is no stronger than B by elo0 */
+        H0,
+        /** The pair limit was reached first */
+        UNDECIDED
+    }
+
+    // The pairs of each kind assumed before any are played, as a share of a pair
+    private static final double PRIOR = 0.2;
+
+    private final BotConfig a, b;
+    private final double score0, score1;
+    // The log-likelihood ratio bounds for accepting H0 and H1
+    private final double lower, upper;
+    private final CompletableFuture<Verdict> verdict;
+    private PrintStream progress;
+
+    // Guarded by this
+    // Pairs in which A scored 0, 0.5, 1, 1.5 and 2 points
+    private final int[] pentanomial;
+    private Random deals;
+    private int started, maxPairs;
+
+    /**
+     * Creates a match
+     *
+     * @param a
+     *            the bot being tested
+     * @param b
+     *            the bot it is tested against
+     * @param elo0
+     *            the Elo difference of H0
+     * @param elo1
+     *            the Elo difference of H1, above elo0
+     * @param alpha
+     *            the chance of accepting H1 when H0 is true
+     * @param beta
+     *            the chance of accepting H0 when H1 is true
+     */
+    public MatchRunner(BotConfig a, BotConfig b, double elo0, double elo1, double alpha, double beta)
+    {
+        this.a = a;
+        this.b = b;
+        score0 = expectedScore(elo0);
+        score1 = expectedScore(elo1);
+        lower = Math.log(beta / (1 - alpha));
+        upper = Math.log((1 - beta) / alpha);
+        verdict = new CompletableFuture<Verdict>();
+        pentanomial = new int[5];
+    }
+
+    /**
+     * Runs a match between the two configs given, printing its progress
+     *
+     * @param args
+     *            configs A and B
+     * @throws IOException
+     *             if a config's checkpoint can't be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("Usage: java bot.MatchRunner <config A> <config B>");
+            System.exit(1);
+        }
+        MatchRunner m = new MatchRunner(BotConfig.parse(args[0]), BotConfig.parse(args[1]),
+                Double.parseDouble(System.getProperty("azul.match.elo0", "0")),
+                Double.parseDouble(System.getProperty("azul.match.elo1", "20")),
+                Double.parseDouble(System.getProperty("azul.match.alpha", "0.05")),
+                Double.parseDouble(System.getProperty("azul.match.beta", "0.05")));
+        System.out.println("A: " + m.a);
+        System.out.println("B: " + m.b);
+        m.setProgress(System.out);
+        Verdict v = m.run(Integer.getInteger("azul.match.maxPairs", 5000),
+                Integer.getInteger("azul.match.concurrency", Runtime.getRuntime().availableProcessors()),
+                new Random().nextLong());
+        System.out.println(v + ": " + m.getSummary());
+    }
+
+    /**
+     * Sets where a summary is printed after every tenth pair
+     *
+     * @param out
+     *            the stream to print to, or null for none
+     */
+    public void setProgress(PrintStream out)
+    {
+        progress = out;
+    }
+
+    /**
+     * Plays pairs until the test decides or the limit is reached. Pairs still in play when the match is decided are
+     * left to finish, and not counted.
+     *
+     * @param maxPairs
+     *            the most pairs to play
+     * @param concurrency
+     *            the number of pairs in play at once
+     * @param seed
+     *            the seed for the deals
+     * @return the verdict
+     * @throws java.util.concurrent.CompletionException
+     *             if a game fails
+     */
+    public Verdict run(int maxPairs, int concurrency, long seed)
+    {
+        synchronized (this)
+        {
+            if (deals != null)
+                throw new IllegalStateException("The match has already been run.");
+            deals = new Random(seed);
+            this.maxPairs = maxPairs;
+            for (int i = 0; i < concurrency && started < maxPairs; ++i)
+            {
+                startPair();
+            }
+        }
+        return verdict.join();
+    }
+
+    /**
+     * Returns the log-likelihood ratio of H1 to H0 for the pairs played so far, by the normal approximation to the
+     * distribution of pair scores
+     *
+     * @return the log-likelihood ratio
+     */
+    public synchronized double getLlr()
+    {
+        int played = 0;
+        double n = 0, sum = 0, sumSquares = 0;
+        for (int i = 0; i < 5; ++i)
+        {
+            // A pair's score, as a share of the points available
+            double x = i / 4.0;
+            // A fifth of a pair of each kind keeps the variance above 0 when every pair so far has gone the same way
+            double count = pentanomial[i] + PRIOR;
+            played += pentanomial[i];
+            n += count;
+            sum += count * x;
+            sumSquares += count * x * x;
+        }
+        if (played == 0)
+            return 0;
+        double mean = sum / n;
+        double variance = sumSquares / n - mean * mean;
+        if (variance <= 0)
+            return 0;
+        return n * (score1 - score0) * (2 * mean - score0 - score1) / (2 * variance);
+    }
+
+    /**
+     * Returns the Elo difference of A over B implied by the pairs played so far
+     *
+     * @return the Elo difference
+     */
+    public synchronized double getElo()
+    {
+        int n = 0;
+        double sum = 0;
+        for (int i = 0; i < 5; ++i)
+        {
+            n += pentanomial[i];
+            sum += pentanomial[i] * i / 4.0;
+        }
+        double score = Math.max(1e-3, Math.min(1 - 1e-3, (n == 0) ? 0.5 : sum / n));
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * Returns a one-line summary of the match so far
+     *
+     * @return the summary
+     */
+    public synchronized String getSummary()
+    {
+        int n = 0;
+        for (int c : pentanomial)
+        {
+            n += c;
+        }
+        return String.format("%d pairs, pentanomial [%d %d %d %d %d], Elo %+.1f, LLR %.2f (%.2f, %.2f)", n,
+                pentanomial[0], pentanomial[1], pentanomial[2], pentanomial[3], pentanomial[4], getElo(), getLlr(),
+                lower, upper);
+    }
+
+    /**
+     * Starts a pair of games on a new deal, with A in each seat in turn
+     */
+    private synchronized void startPair()
+    {
+        ++started;
+        long deal = deals.nextLong();
+        SelfPlay.playDuplicate(deal, a, b).thenApply(new Function<SelfPlay.DealResult, Double>()
+        {
+            @Override
+            public Double apply(SelfPlay.DealResult r)
+            {
+                return r.getPoints(0) * r.getGames();
+            }
+        }).whenComplete(new BiConsumer<Double, Throwable>()
+        {
+            @Override
+            public void accept(Double points, Throwable t)
+            {
+                if (t == null)
+                    record(points);
+                else
+                    verdict.completeExceptionally(t);
+            }
+        });
+    }
+
+    /**
+     * Counts a finished pair, then either decides the match or starts another pair
+     *
+     * @param points
+     *            the points A scored in the pair
+     */
+    private synchronized void record(double points)
+    {
+        if (verdict.isDone())
+            return;
+        ++pentanomial[(int) Math.round(points * 2)];
+        int played = 0;
+        for (int c : pentanomial)
+        {
+            played += c;
+        }
+        if (progress != null && played % 10 == 0)
+            progress.println(getSummary());
+        double llr = getLlr();
+        if (llr >= upper)
+            verdict.complete(Verdict.H1);
+        else if (llr <= lower)
+            verdict.complete(Verdict.H0);
+        else if (started < maxPairs)
+            startPair();
+        else if (played == maxPairs)
+            verdict.complete(Verdict.UNDECIDED);
+    }
+
+    /**
+     * Returns the expected score of a player with the given Elo advantage
+     *
+     * @param elo
+     *            the advantage
+     * @return the expected share of the points
+     */
+    private static double expectedScore(double elo)
+    {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+}
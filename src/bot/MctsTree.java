@@ -0,0 +1,354 @@
+package bot;
+
+import java.util.Random;
+
+import model.Move;
+
+/**
+ * A Monte Carlo search tree over the rest of the current round. Each iteration walks down the tree by UCT, adds one
+ * node, plays random moves to the end of the round and credits every node on the way with the result for the player
+ * who chose it, judged by an Evaluator so that what the round sets up for later rounds counts as well as its points.
+ * The tree can be moved down to the position reached by the moves actually played, keeping what was learned about it.
+ * Not thread-safe; it is used by one search task at a time.
+ *
+ * @author jsnhlbr5
+ */
+final class MctsTree
+{
+    // Rewards are in [0, 1], so this is close to the textbook sqrt(2)/2
+    private static final double EXPLORATION = 0.7;
+    // A margin this many points better than at the root is worth a reward of ~0.73
+    private static final double SCORE_SCALE = 8;
+    // Every move takes at least one of the (at most 36) tiles, so no round is longer than this
+    private static final int MAX_PLIES = 40;
+
+    private final Random rng;
+    private final Evaluator evaluator;
+    private final Position rootPos, pos, scratch;
+    private final int[] moves;
+    private final Node[] path;
+    private final double[] rewards;
+    // Each player's margin over the best of the others, at the root
+    private final double[] rootMargin;
+    private Node root;
+    private int nodes;
+
+    /**
+     * Creates a tree rooted at the given position
+     *
+     * @param p
+     *            the position to search from
+     * @param rng
+     *            the source of randomness for move ordering and playouts
+     * @param evaluator
+     *            judges the positions the playouts reach
+     */
+    MctsTree(Position p, Random rng, Evaluator evaluator)
+    {
+        this.rng = rng;
+        this.evaluator = evaluator;
+        rootPos = new Position(p);
+        pos = new Position(p);
+        scratch = new Position(p);
+        moves = new int[Position.MAX_MOVES];
+        path = new Node[MAX_PLIES];
+        rewards = new double[p.players];
+        rootMargin = new double[p.players];
+        reset(p);
+    }
+
+    /**
+     * Returns the number of nodes in the tree
+     *
+     * @return the number of nodes in the tree
+     */
+    int size()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns the position at the root of the tree
+     *
+     * @return the root position; must not be modified
+     */
+    Position getRoot()
+    {
+        return rootPos;
+    }
+
+    /**
+     * Returns true if there is anything to search: the round isn't over at the root
+     *
+     * @return true if there are moves to search
+     */
+    boolean isSearchable()
+    {
+        return !rootPos.roundOver;
+    }
+
+    /**
+     * Moves the root to the given position. If it is the root or one move below it, the part of the tree below that
+     * move is kept; otherwise the tree starts over.
+     *
+     * @param p
+     *            the new root position
+     * @return true if the existing search was reused
+     */
+    boolean advance(Position p)
+    {
+        if (rootPos.equals(p))
+            return true;
+        if (root.children != null)
+        {
+            for (int i = 0; i < root.expanded; ++i)
+            {
+                scratch.copyFrom(rootPos);
+                scratch.play(root.children[i].move);
+                if (scratch.equals(p))
+                {
+                    root = root.children[i];
+                    rootPos.copyFrom(scratch);
+                    nodes = count(root);
+                    updateMargins();
+                    return true;
+                }
+            }
+        }
+        reset(p);
+        return false;
+    }
+
+    /**
+     * Discards the tree and starts over at the given position
+     *
+     * @param p
+     *            the new root position
+     */
+    void reset(Position p)
+    {
+        rootPos.copyFrom(p);
+        root = new Node(-1, -1);
+        nodes = 1;
+        updateMargins();
+    }
+
+    /**
+     * Runs one iteration of the search
+     *
+     * @param grow
+     *            false to search without adding nodes to the tree
+     */
+    void iterate(boolean grow)
+    {
+        pos.copyFrom(rootPos);
+        Node node = root;
+        int depth = 0;
+        path[depth++] = node;
+        while (!pos.roundOver)
+        {
+            if (node.moves == null)
+                expand(node);
+            if (node.expanded < node.moves.length)
+            {
+                if (!grow)
+                    break;
+                Node child = new Node(node.moves[node.expanded], pos.toMove);
+                node.children[node.expanded++] = child;
+                ++nodes;
+                pos.play(child.move);
+                path[depth++] = child;
+                break;
+            }
+            node = select(node);
+            pos.play(node.move);
+            path[depth++] = node;
+        }
+
+        playout(pos);
+        for (int p = 0; p < pos.players; ++p)
+        {
+            double margin = evaluator.evaluate(pos, p) - rootMargin[p];
+            rewards[p] = 1 / (1 + Math.exp(-margin / SCORE_SCALE));
+        }
+        for (int i = 0; i < depth; ++i)
+        {
+            ++path[i].visits;
+            if (path[i].mover >= 0)
+                path[i].total += rewards[path[i].mover];
+        }
+    }
+
+    /**
+     * Returns the move searched most at the root, or the first legal move if none has been searched
+     *
+     * @return the code of the best move found, or -1 if the round is over
+     */
+    int bestMove()
+    {
+        Node best = null;
+        for (int i = 0; i < root.expanded; ++i)
+        {
+            if (best == null || root.children[i].visits > best.visits)
+                best = root.children[i];
+        }
+        if (best != null)
+            return best.move;
+        return (rootPos.legalMoves(moves) > 0) ? moves[0] : -1;
+    }
+
+    /**
+     * Returns how many times the search has been through the root
+     *
+     * @return the number of iterations that reached the root
+     */
+    int rootVisits()
+    {
+        return root.visits;
+    }
+
+    /**
+     * Finds the legal moves at a node, ordered randomly but with the floor line moves last, so they are tried only
+     * once the build rows have been
+     *
+     * @param node
+     *            the node, whose position is in pos
+     */
+    private void expand(Node node)
+    {
+        int n = pos.legalMoves(moves);
+        int[] ordered = new int[n];
+        int front = 0, back = n;
+        for (int i = 0; i < n; ++i)
+        {
+            if (Position.row(moves[i]) == Move.FLOOR)
+                ordered[--back] = moves[i];
+            else
+                ordered[front++] = moves[i];
+        }
+        shuffle(ordered, 0, front);
+        shuffle(ordered, front, n);
+        node.moves = ordered;
+        node.children = new Node[n];
+    }
+
+    /**
+     * Picks the child of a fully expanded node with the best upper confidence bound for the player choosing
+     *
+     * @param node
+     *            the node
+     * @return the chosen child
+     */
+    private Node select(Node node)
+    {
+        double logVisits = Math.log(node.visits);
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < node.expanded; ++i)
+        {
+            Node c = node.children[i];
+            double value = c.total / c.visits + EXPLORATION * Math.sqrt(logVisits / c.visits);
+            if (value > bestValue)
+            {
+                bestValue = value;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays random moves to the end of the round, avoiding the floor line while any build row can take the tiles
+     *
+     * @param p
+     *            the position to play out
+     */
+    private void playout(Position p)
+    {
+        while (!p.roundOver)
+        {
+            int n = p.legalMoves(moves);
+            int rows = 0;
+            for (int i = 0; i < n; ++i)
+            {
+                if (Position.row(moves[i]) != Move.FLOOR)
+                    moves[rows++] = moves[i];
+            }
+            p.play(moves[rng.nextInt((rows > 0) ? rows : n)]);
+        }
+    }
+
+    /**
+     * Recomputes each player's margin at the root
+     */
+    private void updateMargins()
+    {
+        for (int p = 0; p < rootPos.players; ++p)
+        {
+            rootMargin[p] = evaluator.evaluate(rootPos, p);
+        }
+    }
+
+    /**
+     * Shuffles part of an array
+     *
+     * @param a
+     *            the array
+     * @param from
+     *            the first index to shuffle
+     * @param to
+     *            one past the last index to shuffle
+     */
+    private void shuffle(int[] a, int from, int to)
+    {
+        for (int i = to - 1; i > from; --i)
+        {
+            int j = from + rng.nextInt(i - from + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /**
+     * Counts the nodes in a subtree
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the number of nodes
+     */
+    private static int count(Node n)
+    {
+        int total = 1;
+        for (int i = 0; i < n.expanded; ++i)
+        {
+            total += count(n.children[i]);
+        }
+        return total;
+    }
+
+    /**
+     * A position in the tree, reached by playing a move
+     *
+     * @author jsnhlbr5
+     */
+    private static final class Node
+    {
+        final int move;
+        // The player who played the move, who the rewards are credited for
+        final int mover;
+        int visits;
+        double total;
+        // Filled in on the first visit
+        int[] moves;
+        Node[] children;
+        // Children [0, expanded) have been created
+        int expanded;
+
+        Node(int move, int mover)
+        {
+            this.move = move;
+            this.mover = mover;
+        }
+    }
+}
@@ -0,0 +1,700 @@
+package bot;
+
+import java.util.Arrays;
+
+import model.Color;
+import model.Game;
+import model.Move;
+import model.PlayerBoard;
+
+/**
+ * A compact copy of a game's state for bots to search. It plays moves and scores the end of the round by the same
+ * rules as Game and PlayerBoard, but holds only counts and bitmasks so that it is cheap to copy; what the bag will
+ * draw for the next round is unknown, so play stops once the round has been scored.
+ *
+ * Moves are encoded as ints while searching, so that generating and playing them allocates nothing; toMove() and
+ * code() convert to and from Move objects.
+ *
+ * @author jsnhlbr5
+ */
+public final class Position
+{
+    /**
+     * The number of tile colors that can be picked (all but WHITE)
+     */
+    static final int COLORS = 5;
+    /**
+     * The most legal moves any position can have: 9 factories and the center, 5 colors, 5 rows and the floor line
+     */
+    static final int MAX_MOVES = 10 * COLORS * 6;
+
+    private static final Color[] colors = Color.values();
+    // Wall rows, columns and colors, as masks of wall bits, for the end-of-game bonuses
+    private static final int[] rowMasks = new int[5];
+    private static final int[] colMasks = new int[5];
+    private static final int[] colorMasks = new int[5];
+
+    static
+    {
+        for (int r = 0; r < 5; ++r)
+        {
+            for (int c = 0; c < 5; ++c)
+            {
+                int bit = 1 << (r * 5 + c);
+                rowMasks[r] |= bit;
+                colMasks[c] |= bit;
+                colorMasks[(c - r + 5) % 5] |= bit;
+            }
+        }
+    }
+
+    final int players, factories;
+    // Tile counts, indexed [factory * COLORS + color]
+    final int[] factory;
+    // Tile counts, indexed by color
+    final int[] center;
+    boolean firstInCenter;
+    // Tiles left in the factories and center, not counting the first player tile
+    int tilesLeft;
+    // Build rows, indexed [player * 5 + row]; the color is -1 for an empty row
+    final int[] rowColor, rowCount;
+    // Indexed by player
+    final int[] wall, floor, score;
+    // The player who took the first player tile this round, or -1
+    int firstTaken;
+    int toMove;
+    boolean roundOver, gameOver;
+
+    /**
+     * Copies the state of the given game at the start of a turn. Must be called on the thread playing the game.
+     *
+     * @param g
+     *            the game to copy
+     */
+    public Position(Game g)
+    {
+        this(g.getPlayerCount(), g.getFactoryCount());
+        for (int f = 0; f < factories; ++f)
+        {
+            for (int c = 0; c < COLORS; ++c)
+            {
+                factory[f * COLORS + c] = g.getFactoryColorCount(f, colors[c]);
+                tilesLeft += factory[f * COLORS + c];
+            }
+        }
+        for (int c = 0; c < COLORS; ++c)
+        {
+            center[c] = g.getCenterColorCount(colors[c]);
+            tilesLeft += center[c];
+        }
+        firstInCenter = g.getCenterColorCount(Color.WHITE) > 0;
+        firstTaken = -1;
+        for (int p = 0; p < players; ++p)
+        {
+            PlayerBoard pb = g.getPlayerBoard(p);
+            for (int r = 0; r < 5; ++r)
+            {
+                Color c = pb.getBuildRowColor(r);
+                rowCount[p * 5 + r] = pb.getBuildRowCount(r);
+                rowColor[p * 5 + r] = (c == null || rowCount[p * 5 + r] == 0) ? -1 : c.ordinal();
+            }
+            wall[p] = pb.getWallMask();
+            floor[p] = pb.getFloorLineCount();
+            score[p] = pb.getScore();
+            for (int i = 0; i < floor[p]; ++i)
+            {
+                if (pb.getFloorLineTile(i) == Color.WHITE)
+                    firstTaken = p;
+            }
+        }
+        toMove = g.getCurPlayer();
+        gameOver = g.isFinished();
+    }
+
+    /**
+     * Creates a copy of the given position
+     *
+     * @param p
+     *            the position to copy
+     */
+    public Position(Position p)
+    {
+        this(p.players, p.factories);
+        copyFrom(p);
+    }
+
+    /**
+     * Creates an empty position
+     *
+     * @param players
+     *            the number of players
+     * @param factories
+     *            the number of factories
+     */
+    private Position(int players, int factories)
+    {
+        this.players = players;
+        this.factories = factories;
+        factory = new int[factories * COLORS];
+        center = new int[COLORS];
+        rowColor = new int[players * 5];
+        rowCount = new int[players * 5];
+        wall = new int[players];
+        floor = new int[players];
+        score = new int[players];
+    }
+
+    /**
+     * Overwrites this position with another of the same game, without allocating
+     *
+     * @param p
+     *            the position to copy
+     */
+    void copyFrom(Position p)
+    {
+        System.arraycopy(p.factory, 0, factory, 0, factory.length);
+        System.arraycopy(p.center, 0, center, 0, COLORS);
+        System.arraycopy(p.rowColor, 0, rowColor, 0, rowColor.length);
+        System.arraycopy(p.rowCount, 0, rowCount, 0, rowCount.length);
+        System.arraycopy(p.wall, 0, wall, 0, players);
+        System.arraycopy(p.floor, 0, floor, 0, players);
+        System.arraycopy(p.score, 0, score, 0, players);
+        firstInCenter = p.firstInCenter;
+        tilesLeft = p.tilesLeft;
+        firstTaken = p.firstTaken;
+        toMove = p.toMove;
+        roundOver = p.roundOver;
+        gameOver = p.gameOver;
+    }
+
+    /**
+     * Writes this position as a line of space-separated integers, as sent to external bots: the player count, the
+     * factory count, the player to move, the player who took the first player tile (or -1), 1 if the first player tile
+     * is still in the center (or 0), the tile count of each color in each factory, the tile count of each color in the
+     * center, then for each player the color of each build row (or -1), the tile count of each build row, the wall
+     * mask, the floor line tile count and the score. Colors are in Color order, without WHITE.
+     *
+     * @return the encoded position
+     */
+    public String encode()
+    {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(players).append(' ').append(factories).append(' ').append(toMove).append(' ').append(firstTaken)
+                .append(' ').append(firstInCenter ? 1 : 0);
+        for (int i = 0; i < factory.length; ++i)
+        {
+            sb.append(' ').append(factory[i]);
+        }
+        for (int i = 0; i < COLORS; ++i)
+        {
+            sb.append(' ').append(center[i]);
+        }
+        for (int p = 0; p < players; ++p)
+        {
+            for (int r = 0; r < 5; ++r)
+            {
+                sb.append(' ').append(rowColor[p * 5 + r]);
+            }
+            for (int r = 0; r < 5; ++r)
+            {
+                sb.append(' ').append(rowCount[p * 5 + r]);
+            }
+            sb.append(' ').append(wall[p]).append(' ').append(floor[p]).append(' ').append(score[p]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a position written by encode(), checking that it could arise in a game: 2 to 4 players with the matching
+     * number of factories, players and colors in range, at most 4 tiles in a factory, build rows that are empty or hold
+     * one color that isn't on the wall in that row, no more than 20 tiles of a color in play, and a tile left to pick.
+     *
+     * @param line
+     *            the encoded position
+     * @return the position
+     * @throws IllegalArgumentException
+     *             if the position is malformed or can't arise in a game
+     */
+    public static Position decode(String line)
+    {
+        String[] t = line.trim().split("\\s+");
+        try
+        {
+            int players = parse(t[0], 2, 4, "player count");
+            int factories = parse(t[1], 2 * players + 1, 2 * players + 1, "factory count");
+            if (t.length != 5 + (factories + 1) * COLORS + players * 13)
+                throw new IllegalArgumentException("Wrong number of values: " + t.length);
+            Position p = new Position(players, factories);
+            int i = 2;
+            p.toMove = parse(t[i++], 0, players - 1, "player to move");
+            p.firstTaken = parse(t[i++], -1, players - 1, "first player");
+            p.firstInCenter = parse(t[i++], 0, 1, "first player tile") != 0;
+            if (p.firstInCenter && p.firstTaken >= 0)
+                throw new IllegalArgumentException("First player tile both taken and in the center");
+            int[] inPlay = new int[COLORS];
+            for (int f = 0; f < factories; ++f)
+            {
+                int tiles = 0;
+                for (int c = 0; c < COLORS; ++c)
+                {
+                    int n = parse(t[i++], 0, 4, "factory tile count");
+                    p.factory[f * COLORS + c] = n;
+                    inPlay[c] += n;
+                    tiles += n;
+                }
+                if (tiles > 4)
+                    throw new IllegalArgumentException("Factory " + f + " holds " + tiles + " tiles");
+                p.tilesLeft += tiles;
+            }
+            for (int c = 0; c < COLORS; ++c)
+            {
+                p.center[c] = parse(t[i++], 0, 20, "center tile count");
+                inPlay[c] += p.center[c];
+                p.tilesLeft += p.center[c];
+            }
+            if (p.tilesLeft == 0)
+                throw new IllegalArgumentException("No tiles left to pick");
+            for (int q = 0; q < players; ++q)
+            {
+                for (int r = 0; r < 5; ++r)
+                {
+                    p.rowColor[q * 5 + r] = parse(t[i++], -1, COLORS - 1, "build row color");
+                }
+                for (int r = 0; r < 5; ++r)
+                {
+                    p.rowCount[q * 5 + r] = parse(t[i++], 0, r + 1, "build row tile count");
+                }
+                p.wall[q] = parse(t[i++], 0, (1 << 25) - 1, "wall mask");
+                // Tiles past the 7th cost nothing more, but the floor line holds them all
+                p.floor[q] = parse(t[i++], 0, COLORS * 20 + 1, "floor line tile count");
+                p.score[q] = parse(t[i++], 0, Integer.MAX_VALUE, "score");
+                for (int r = 0; r < 5; ++r)
+                {
+                    int c = p.rowColor[q * 5 + r];
+                    if ((c < 0) != (p.rowCount[q * 5 + r] == 0))
+                        throw new IllegalArgumentException("Build row " + r + " has a color but no tiles, or tiles but"
+                                + " no color");
+                    if (c >= 0 && (p.wall[q] & (1 << (r * 5 + (r + c) % 5))) != 0)
+                        throw new IllegalArgumentException("Build row " + r + " holds a color already on the wall");
+                    if (c >= 0)
+                        inPlay[c] += p.rowCount[q * 5 + r];
+                }
+                for (int c = 0; c < COLORS; ++c)
+                {
+                    inPlay[c] += Integer.bitCount(p.wall[q] & colorMasks[c]);
+                }
+            }
+            for (int c = 0; c < COLORS; ++c)
+            {
+                if (inPlay[c] > 20)
+                    throw new IllegalArgumentException(inPlay[c] + " tiles of " + colors[c] + " in play");
+            }
+            return p;
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("Malformed position: " + line, e);
+        }
+    }
+
+    /**
+     * Reads one value of an encoded position
+     *
+     * @param s
+     *            the value
+     * @param min
+     *            the least value allowed
+     * @param max
+     *            the greatest value allowed
+     * @param what
+     *            what the value is, for the error message
+     * @return the value
+     * @throws IllegalArgumentException
+     *             if the value isn't an integer in range
+     */
+    private static int parse(String s, int min, int max, String what)
+    {
+        int n = Integer.parseInt(s);
+        if (n < min || n > max)
+            throw new IllegalArgumentException("Invalid " + what + ": " + n);
+        return n;
+    }
+
+    // ---- Get/check state methods ----
+
+    /**
+     * Returns the number of players
+     *
+     * @return the number of players
+     */
+    public int getPlayerCount()
+    {
+        return players;
+    }
+
+    /**
+     * Returns the seat index of the player to move
+     *
+     * @return the seat index of the player to move (after the round is scored, the first player of the next round)
+     */
+    public int getToMove()
+    {
+        return toMove;
+    }
+
+    /**
+     * Returns the given player's score
+     *
+     * @param p
+     *            the player's seat index
+     * @return the player's score, including the end-of-game bonuses once the game is over
+     */
+    public int getScore(int p)
+    {
+        return score[p];
+    }
+
+    /**
+     * Returns true once every tile has been taken and the round has been scored
+     *
+     * @return true once the round has been scored
+     */
+    public boolean isRoundOver()
+    {
+        return roundOver;
+    }
+
+    /**
+     * Returns true if the game ended when this round was scored
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver()
+    {
+        return gameOver;
+    }
+
+    /**
+     * Returns true if the given player could place tiles of the given color on the given build row
+     *
+     * @param p
+     *            the player's seat index
+     * @param row
+     *            the build row (0-4)
+     * @param c
+     *            the color ordinal
+     * @return true if the tiles could be placed there
+     */
+    boolean canPlace(int p, int row, int c)
+    {
+        int i = p * 5 + row;
+        return (wall[p] & (1 << (row * 5 + (row + c) % 5))) == 0 && (rowColor[i] < 0 || rowColor[i] == c)
+                && rowCount[i] <= row;
+    }
+
+    /**
+     * Fills the given array with the codes of every legal move for the player to move
+     *
+     * @param out
+     *            an array of at least MAX_MOVES entries
+     * @return the number of moves written; 0 once the round is over
+     */
+    int legalMoves(int[] out)
+    {
+        if (roundOver)
+            return 0;
+        int n = 0;
+        for (int s = Move.CENTER; s < factories; ++s)
+        {
+            for (int c = 0; c < COLORS; ++c)
+            {
+                if (((s == Move.CENTER) ? center[c] : factory[s * COLORS + c]) == 0)
+                    continue;
+                for (int r = 0; r < 5; ++r)
+                {
+                    if (canPlace(toMove, r, c))
+                        out[n++] = code(s, c, r);
+                }
+                out[n++] = code(s, c, Move.FLOOR);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of tiles the given move would pick
+     *
+     * @param move
+     *            the move code
+     * @return the number of tiles picked, not counting the first player tile
+     */
+    int pickCount(int move)
+    {
+        int s = source(move);
+        int c = color(move);
+        return (s == Move.CENTER) ? center[c] : factory[s * COLORS + c];
+    }
+
+    // ---- Mutator methods ----
+
+    /**
+     * Plays a move for the player to move, scoring the round if it takes the last tile
+     *
+     * @param move
+     *            the code of a legal move
+     */
+    void play(int move)
+    {
+        int s = source(move);
+        int c = color(move);
+        int row = row(move);
+        int p = toMove;
+        int count;
+        if (s == Move.CENTER)
+        {
+            count = center[c];
+            center[c] = 0;
+            if (firstInCenter)
+            {
+                firstInCenter = false;
+                firstTaken = p;
+                ++floor[p];
+            }
+        }
+        else
+        {
+            count = factory[s * COLORS + c];
+            factory[s * COLORS + c] = 0;
+            for (int o = 0; o < COLORS; ++o)
+            {
+                center[o] += factory[s * COLORS + o];
+                factory[s * COLORS + o] = 0;
+            }
+        }
+        tilesLeft -= count;
+
+        if (row == Move.FLOOR)
+        {
+            floor[p] += count;
+        }
+        else
+        {
+            int i = p * 5 + row;
+            int placed = Math.min(count, row + 1 - rowCount[i]);
+            rowCount[i] += placed;
+            rowColor[i] = c;
+            floor[p] += count - placed;
+        }
+
+        if (tilesLeft == 0 && !firstInCenter)
+            finishRound();
+        else
+            toMove = (toMove + 1) % players;
+    }
+
+    /**
+     * Tiles the full build rows, scores them and the floor lines, and ends the game if any wall row is complete
+     */
+    private void finishRound()
+    {
+        for (int p = 0; p < players; ++p)
+        {
+            for (int r = 0; r < 5; ++r)
+            {
+                int i = p * 5 + r;
+                if (rowCount[i] == r + 1)
+                {
+                    int col = (r + rowColor[i]) % 5;
+                    wall[p] |= 1 << (r * 5 + col);
+                    score[p] += scoreTile(wall[p], r, col);
+                    rowCount[i] = 0;
+                    rowColor[i] = -1;
+                }
+            }
+            score[p] = Math.max(0, score[p] + PlayerBoard.getFloorLinePenalty(floor[p]));
+            floor[p] = 0;
+        }
+        roundOver = true;
+        if (firstTaken >= 0)
+            toMove = firstTaken;
+        for (int p = 0; p < players; ++p)
+        {
+            for (int r = 0; r < 5; ++r)
+            {
+                if ((wall[p] & rowMasks[r]) == rowMasks[r])
+                    gameOver = true;
+            }
+        }
+        if (gameOver)
+        {
+            for (int p = 0; p < players; ++p)
+            {
+                score[p] += endGameBonus(wall[p]);
+            }
+        }
+    }
+
+    // ---- Static helpers ----
+
+    /**
+     * Scores a tile just placed on a wall, by counting the contiguous row and/or column that it is part of
+     *
+     * @param wall
+     *            the wall mask, including the new tile
+     * @param row
+     *            the row of the new tile
+     * @param col
+     *            the column of the new tile
+     * @return the points scored
+     */
+    static int scoreTile(int wall, int row, int col)
+    {
+        int rowLen = 1;
+        for (int i = col + 1; i < 5 && (wall & (1 << (row * 5 + i))) != 0; ++i)
+        {
+            ++rowLen;
+        }
+        for (int i = col - 1; i >= 0 && (wall & (1 << (row * 5 + i))) != 0; --i)
+        {
+            ++rowLen;
+        }
+        int colLen = 1;
+        for (int i = row + 1; i < 5 && (wall & (1 << (i * 5 + col))) != 0; ++i)
+        {
+            ++colLen;
+        }
+        for (int i = row - 1; i >= 0 && (wall & (1 << (i * 5 + col))) != 0; --i)
+        {
+            ++colLen;
+        }
+        if (rowLen == 1 && colLen == 1)
+            return 1;
+        return ((rowLen > 1) ? rowLen : 0) + ((colLen > 1) ? colLen : 0);
+    }
+
+    /**
+     * Returns the end-of-game bonus for a wall, by PlayerBoard's bonuses for complete rows, columns and colors
+     *
+     * @param wall
+     *            the wall mask
+     * @return the bonus points
+     */
+    static int endGameBonus(int wall)
+    {
+        int bonus = 0;
+        for (int i = 0; i < 5; ++i)
+        {
+            if ((wall & rowMasks[i]) == rowMasks[i])
+                bonus += PlayerBoard.ROW_BONUS;
+            if ((wall & colMasks[i]) == colMasks[i])
+                bonus += PlayerBoard.COLUMN_BONUS;
+            if ((wall & colorMasks[i]) == colorMasks[i])
+                bonus += PlayerBoard.COLOR_BONUS;
+        }
+        return bonus;
+    }
+
+    /**
+     * Encodes a move
+     *
+     * @param source
+     *            the factory index, or Move.CENTER
+     * @param color
+     *            the color ordinal
+     * @param row
+     *            the build row, or Move.FLOOR
+     * @return the move code
+     */
+    static int code(int source, int color, int row)
+    {
+        return ((source + 1) * COLORS + color) * 6 + row;
+    }
+
+    /**
+     * Encodes a move
+     *
+     * @param m
+     *            the move
+     * @return the move code
+     */
+    public static int code(Move m)
+    {
+        return code(m.source, m.color.ordinal(), m.row);
+    }
+
+    /**
+     * Decodes a move
+     *
+     * @param move
+     *            the move code
+     * @return the move
+     */
+    public static Move toMove(int move)
+    {
+        return new Move(source(move), colors[color(move)], row(move));
+    }
+
+    /**
+     * Returns the source of an encoded move
+     *
+     * @param move
+     *            the move code
+     * @return the factory index, or Move.CENTER
+     */
+    static int source(int move)
+    {
+        return move / (COLORS * 6) - 1;
+    }
+
+    /**
+     * Returns the color of an encoded move
+     *
+     * @param move
+     *            the move code
+     * @return the color ordinal
+     */
+    static int color(int move)
+    {
+        return (move / 6) % COLORS;
+    }
+
+    /**
+     * Returns the row of an encoded move
+     *
+     * @param move
+     *            the move code
+     * @return the build row, or Move.FLOOR
+     */
+    static int row(int move)
+    {
+        return move % 6;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof Position))
+            return false;
+        Position p = (Position) o;
+        return p.players == players && p.factories == factories && p.firstInCenter == firstInCenter
+                && p.tilesLeft == tilesLeft && p.firstTaken == firstTaken && p.toMove == toMove
+                && p.roundOver == roundOver && p.gameOver == gameOver && Arrays.equals(p.factory, factory)
+                && Arrays.equals(p.center, center) && Arrays.equals(p.rowColor, rowColor)
+                && Arrays.equals(p.rowCount, rowCount) && Arrays.equals(p.wall, wall)
+                && Arrays.equals(p.floor, floor) && Arrays.equals(p.score, score);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int h = Arrays.hashCode(factory);
+        h = 31 * h + Arrays.hashCode(center);
+        h = 31 * h + Arrays.hashCode(rowColor);
+        h = 31 * h + Arrays.hashCode(rowCount);
+        h = 31 * h + Arrays.hashCode(wall);
+        h = 31 * h + Arrays.hashCode(floor);
+        h = 31 * h + Arrays.hashCode(score);
+        h = 31 * h + (firstInCenter ? 1 : 0) + (firstTaken + 1) * 2 + toMove * 16 + (roundOver ? 64 : 0);
+        return h;
+    }
+}
@@ -0,0 +1,106 @@
+package bot;
+
+import java.util.Random;
+
+import model.Game;
+
+/**
+ * Checks that Position plays by the same rules as Game: random games are played on both at once, move for move, and
+ * the check stops at the first difference in the state after a move, or in the walls, scores, end of the game and next
+ * first player once a round has been scored. Every position met is also written with encode() and read back with
+ * decode(). Usage:
+ *
+ * <pre>
+ * java bot.PositionCheck [&lt;games&gt; [&lt;seed&gt;]]
+ * </pre>
+ *
+ * with 1000 games of two to four players and a random seed by default; the exit status is 1 if a difference is found.
+ *
+ * @author jsnhlbr5
+ */
+public class PositionCheck
+{
+    private static final String[] names = { "Player 1", "Player 2", "Player 3", "Player 4" };
+
+    /**
+     * This class cannot be instantiated; all of its members are static
+     */
+    private PositionCheck()
+    {
+    }
+
+    /**
+     * Plays the games and reports the first difference found, if any
+     *
+     * @param args
+     *            the number of games and the seed, both optional
+     */
+    public static void main(String[] args)
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : new Random().nextLong();
+        Random rng = new Random(seed);
+        int[] moves = new int[Position.MAX_MOVES];
+        int moveChecks = 0, roundChecks = 0;
+        for (int i = 0; i < games; ++i)
+        {
+            int players = 2 + i % 3;
+            Game g = new Game(players, names, Game.Display.HEADLESS, rng.nextLong());
+            g.start();
+            while (!g.isFinished())
+            {
+                Position before = new Position(g);
+                Position decoded = Position.decode(before.encode());
+                if (!decoded.equals(before))
+                    fail(seed, i, "decode(encode()) differs from the position written", before, decoded);
+                int move = moves[rng.nextInt(before.legalMoves(moves))];
+                Position played = new Position(before);
+                played.play(move);
+                g.playMove(Position.toMove(move));
+                Position after = new Position(g);
+                if (!played.roundOver)
+                {
+                    if (!played.equals(after))
+                        fail(seed, i, "the positions differ after " + Position.toMove(move), played, after);
+                    ++moveChecks;
+                    continue;
+                }
+                // The next round's factories are drawn from the bag, which Position doesn't know
+                for (int p = 0; p < players; ++p)
+                {
+                    if (played.wall[p] != after.wall[p] || played.score[p] != after.score[p])
+                        fail(seed, i, "player " + p + "'s wall or score differs after the round", played, after);
+                }
+                if (played.gameOver != g.isFinished())
+                    fail(seed, i, "the game ended in one and not the other", played, after);
+                if (!played.gameOver && played.toMove != after.toMove)
+                    fail(seed, i, "the next round's first player differs", played, after);
+                ++roundChecks;
+            }
+        }
+        System.out.println("No differences in " + games + " games (seed " + seed + "): " + moveChecks + " moves and "
+                + roundChecks + " rounds checked");
+    }
+
+    /**
+     * Reports a difference and exits
+     *
+     * @param seed
+     *            the seed the games were played with
+     * @param game
+     *            the index of the game the difference was found in
+     * @param what
+     *            what differs
+     * @param position
+     *            the position as Position has it
+     * @param expected
+     *            the position as Game has it
+     */
+    private static void fail(long seed, int game, String what, Position position, Position expected)
+    {
+        System.err.println("Game " + game + " (seed " + seed + "): " + what);
+        System.err.println("  Position: " + position.encode());
+        System.err.println("  Game:     " + expected.encode());
+        System.exit(1);
+    }
+}
@@ -0,0 +1,202 @@
+package bot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import model.Move;
+
+/**
+ * The other end of ExternalBot's protocol: runs this project's own bot as a separate process, reading commands from
+ * standard input and answering on standard output. It is the reference for bots written elsewhere, and lets the
+ * built-in bot play in matches against them on equal terms. Malformed commands are logged (on standard error) and
+ * ignored.
+ *
+ * @author jsnhlbr5
+ */
+public class ProtocolEngine
+{
+    private static final Logger log = Logger.getLogger(ProtocolEngine.class.getName());
+
+    private final PrintWriter out;
+    // The searches not yet answered, in the order they were asked for; guarded by out
+    private final ArrayDeque<SearchControl> searches;
+    private BotThinker thinker;
+    private Position position;
+    private SearchControl control;
+
+    /**
+     * Creates an engine answering on the given stream
+     *
+     * @param out
+     *            where replies are written
+     */
+    public ProtocolEngine(PrintWriter out)
+    {
+        this.out = out;
+        searches = new ArrayDeque<SearchControl>();
+        thinker = new BotThinker(System.nanoTime(), true);
+    }
+
+    /**
+     * Answers commands on standard input until it ends or the engine is told to quit
+     *
+     * @param args
+     *            not used
+     * @throws IOException
+     *             if standard input can't be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        ProtocolEngine engine = new ProtocolEngine(
+                new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))));
+        String line;
+        while ((line = in.readLine()) != null)
+        {
+            if (!engine.handle(line))
+                break;
+        }
+        engine.thinker.cancel();
+    }
+
+    /**
+     * Acts on one command
+     *
+     * @param line
+     *            the command
+     * @return false if the engine was told to quit
+     */
+    public boolean handle(String line)
+    {
+        line = line.trim();
+        int space = line.indexOf(' ');
+        String word = (space < 0) ? line : line.substring(0, space);
+        try
+        {
+            switch (word)
+            {
+            case "azul":
+                reply("id name MCTS\nazulok");
+                break;
+            case "newgame":
+                thinker.cancel();
+                thinker = new BotThinker(System.nanoTime(), true);
+                position = null;
+                break;
+            case "position":
+                // A new position means the engine has given up waiting on the last one
+                if (control != null)
+                    control.finish();
+                // Forgotten first, so that a go after a malformed position is ignored rather than searching the old one
+                position = null;
+                position = Position.decode(line.substring(space + 1));
+                thinker.setPosition(position);
+                break;
+            case "go":
+                go(line.split("\\s+"));
+                break;
+            case "stop":
+                if (control != null)
+                    control.finish();
+                break;
+            case "quit":
+                return false;
+            default:
+                if (!word.isEmpty())
+                    log.log(Level.WARNING, "Unknown command \"" + line + "\"");
+            }
+        }
+        catch (RuntimeException e)
+        {
+            log.log(Level.WARNING, "Malformed command \"" + line + "\"", e);
+        }
+        return true;
+    }
+
+    /**
+     * Starts a search of the last position sent, within the limits given
+     *
+     * @param t
+     *            the words of the go command
+     * @throws IllegalStateException
+     *             if no position has been sent
+     * @throws NumberFormatException
+     *             if a limit is malformed
+     */
+    private void go(String[] t)
+    {
+        long millis = -1, nodes = 0;
+        for (int i = 1; i + 1 < t.length; i += 2)
+        {
+            if (t[i].equals("millis"))
+                millis = Long.parseLong(t[i + 1]);
+            else if (t[i].equals("nodes"))
+                nodes = Long.parseLong(t[i + 1]);
+        }
+        if (position == null)
+            throw new IllegalStateException("No position to search");
+        final SearchControl c;
+        if (millis >= 0)
+            // Leave a little of the time for the reply to reach the engine
+            c = new SearchControl(System.nanoTime() + Math.max(1, millis * 9 / 10) * 1000000L, nodes, null);
+        else
+            c = SearchControl.ofNodes(nodes);
+        control = c;
+        // Queued only once the search has been accepted, so that one that fails to start never holds up the answers
+        thinker.search(position, c);
+        synchronized (out)
+        {
+            searches.add(c);
+        }
+        c.getResult().whenComplete(new BiConsumer<Move, Throwable>()
+        {
+            @Override
+            public void accept(Move m, Throwable t)
+            {
+                answerSearches();
+            }
+        });
+    }
+
+    /**
+     * Answers the searches that have finished, stopping at the first that hasn't, so that the answers go out in the
+     * order the searches were asked for. A search cancelled by a new game still owes its answer.
+     */
+    private void answerSearches()
+    {
+        synchronized (out)
+        {
+            while (!searches.isEmpty() && searches.peek().getResult().isDone())
+            {
+                SearchControl c = searches.poll();
+                out.print("info nodes " + c.getNodesSearched() + "\nbestmove " + ExternalBot.formatMove(c.getBestMove())
+                        + "\n");
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes and flushes a reply
+     *
+     * @param s
+     *            the reply's lines, without the final newline
+     */
+    private void reply(String s)
+    {
+        synchronized (out)
+        {
+            out.print(s + "\n");
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package bot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import model.BackgroundExecutor;
+import model.Move;
+
+/**
+ * The limits of one move search, shared between whoever asks for a move and the Searcher finding it: an absolute
+ * deadline, a budget of nodes (or playouts), and cooperative cancellation. The searcher reports each new best move as
+ * it finds one, so there is always an answer; at the deadline the shared timer hands over the best move reported so
+ * far, whether or not the search thread has had a chance to run. A search with neither a deadline nor a budget runs
+ * until it is finished or cancelled.
+ *
+ * @author jsnhlbr5
+ */
+public class SearchControl
+{
+    private final boolean timed;
+    private final long deadline;
+    private final long nodeBudget;
+    private final SearchListener listener;
+    private final CompletableFuture<Move> result;
+    private volatile boolean cancelled;
+    private volatile Move best;
+    private volatile long nodes;
+
+    /**
+     * Creates the limits for a search that must answer within the given time
+     *
+     * @param millis
+     *            the time allowed, in milliseconds from now
+     * @return the limits
+     */
+    public static SearchControl within(long millis)
+    {
+        return new SearchControl(System.nanoTime() + millis * 1000000L, 0, null);
+    }
+
+    /**
+     * Creates the limits for a search of a fixed number of nodes, however long it takes
+     *
+     * @param nodeBudget
+     *            the number of nodes to search
+     * @return the limits
+     */
+    public static SearchControl ofNodes(long nodeBudget)
+    {
+        return new SearchControl(false, 0, nodeBudget, null);
+    }
+
+    /**
+     * Creates the limits for a search
+     *
+     * @param deadlineNanos
+     *            when the search must answer, by System.nanoTime()
+     * @param nodeBudget
+     *            the most nodes to search, or 0 for no limit
+     * @param listener
+     *            told about each new best move, or null
+     */
+    public SearchControl(long deadlineNanos, long nodeBudget, SearchListener listener)
+    {
+        this(true, deadlineNanos, nodeBudget, listener);
+    }
+
+    /**
+     * Creates the limits for a search
+     *
+     * @param timed
+     *            true if the search has a deadline
+     * @param deadlineNanos
+     *            when the search must answer, by System.nanoTime()
+     * @param nodeBudget
+     *            the most nodes to search, or 0 for no limit
+     * @param listener
+     *            told about each new best move, or null
+     */
+    private SearchControl(boolean timed, long deadlineNanos, long nodeBudget, SearchListener listener)
+    {
+        this.timed = timed;
+        deadline = deadlineNanos;
+        this.nodeBudget = nodeBudget;
+        this.listener = listener;
+        result = new CompletableFuture<Move>();
+    }
+
+    /**
+     * Called by the searcher as it starts: records a legal move to answer with if nothing better is found, and starts
+     * the clock for the deadline
+     *
+     * @param p
+     *            the position being searched
+     */
+    public void start(Position p)
+    {
+        int[] moves = new int[Position.MAX_MOVES];
+        if (best == null && p.legalMoves(moves) > 0)
+            best = Position.toMove(moves[0]);
+        if (!timed)
+            return;
+        long delay = deadline - System.nanoTime();
+        if (delay <= 0)
+        {
+            finish();
+            return;
+        }
+        BackgroundExecutor.getScheduler().schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                finish();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns true if the search should stop: it has been answered or cancelled, its budget is spent or its deadline
+     * has passed. Searchers check this regularly.
+     *
+     * @param nodesSearched
+     *            the number of nodes searched so far
+     * @return true if the search should stop
+     */
+    public boolean shouldStop(long nodesSearched)
+    {
+        return result.isDone() || (nodeBudget > 0 && nodesSearched >= nodeBudget)
+                || (timed && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * Called by the searcher to report its progress
+     *
+     * @param m
+     *            the best move found so far
+     * @param nodesSearched
+     *            the number of nodes searched so far
+     */
+    public void report(Move m, long nodesSearched)
+    {
+        nodes = nodesSearched;
+        if (m == null || m.equals(best))
+            return;
+        best = m;
+        if (listener != null)
+            listener.bestMoveChanged(m, nodesSearched);
+    }
+
+    /**
+     * Answers with the best move reported so far; does nothing if already answered or cancelled. Called by the searcher
+     * when it stops, and by the timer at the deadline.
+     */
+    public void finish()
+    {
+        result.complete(best);
+    }
+
+    /**
+     * Stops the search without an answer; the result is completed as cancelled.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        result.cancel(false);
+    }
+
+    /**
+     * Returns true if the search was cancelled
+     *
+     * @return true if the search was cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Returns the time left before the deadline
+     *
+     * @return the time left in milliseconds (0 once the deadline has passed), or -1 if the search has no deadline
+     */
+    public long getMillisLeft()
+    {
+        if (!timed)
+            return -1;
+        return Math.max(0, (deadline - System.nanoTime()) / 1000000L);
+    }
+
+    /**
+     * Returns the most nodes the search may take
+     *
+     * @return the node budget, or 0 for no limit
+     */
+    public long getNodeBudget()
+    {
+        return nodeBudget;
+    }
+
+    /**
+     * Returns the best move reported so far
+     *
+     * @return the best move reported so far, or null if the search hasn't started
+     */
+    public Move getBestMove()
+    {
+        return best;
+    }
+
+    /**
+     * Returns the number of nodes searched, as of the last report
+     *
+     * @return the number of nodes searched
+     */
+    public long getNodesSearched()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns the answer, which completes when the search stops or at the deadline, whichever comes first
+     *
+     * @return the answer
+     */
+    public CompletableFuture<Move> getResult()
+    {
+        return result;
+    }
+}
@@ -0,0 +1,22 @@
+package bot;
+
+import model.Move;
+
+/**
+ * Told about a search's progress each time its best move changes
+ *
+ * @author jsnhlbr5
+ */
+public interface SearchListener
+{
+    /**
+     * Notifies the listener that the search has a new best move. Called on the search's thread, so it must return
+     * quickly.
+     *
+     * @param m
+     *            the new best move
+     * @param nodes
+     *            the number of nodes (or playouts) searched so far
+     */
+    public void bestMoveChanged(Move m, long nodes);
+}
@@ -0,0 +1,35 @@
+package bot;
+
+/**
+ * A bot's move search. Implementations start searching when asked and deliver their answer through the SearchControl,
+ * which enforces the limits; the answer is on time even if the search falls behind.
+ *
+ * @author jsnhlbr5
+ */
+public interface Searcher
+{
+    /**
+     * Starts searching for the best move for the player to move in the given position. Returns without waiting; the
+     * move arrives through control.getResult(). Implementations must call control.start() before returning.
+     *
+     * @param p
+     *            the position; it must not be modified afterwards
+     * @param control
+     *            the limits of the search, through which it reports its progress and answer
+     */
+    public void search(Position p, SearchControl control);
+
+    /**
+     * Tells the searcher the position another player faces, as their turn starts, so that it can think ahead while
+     * they choose; searchers that don't think ahead ignore it.
+     *
+     * @param p
+     *            the position; it must not be modified afterwards
+     */
+    public void setPosition(Position p);
+
+    /**
+     * Stops any search in progress without an answer, as the game it was for ends
+     */
+    public void cancel();
+}
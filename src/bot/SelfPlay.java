@@ -0,0 +1,241 @@
+package bot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import model.Game;
+import view.GameObserver;
+
+/**
+ * Plays headless games between bots, for matches and tuning. A game runs entirely on the shared background threads:
+ * each move is played as a task there once its search answers, so any number of games can be in play at once, and
+ * between them they keep every core busy.
+ *
+ * @author jsnhlbr5
+ */
+public final class SelfPlay
+{
+    /**
+     * This class cannot be instantiated; all of its members are static
+     */
+    private SelfPlay()
+    {
+    }
+
+    /**
+     * Starts a game between the given bots, seated in the order given. Games with the same seed and seating deal the
+     * same tiles for as long as the same moves are played.
+     *
+     * @param seed
+     *            the seed for the game's deals and the bots' searches
+     * @param seats
+     *            the bot for each seat (2-4)
+     * @return the final scores, indexed by seat, once the game is over
+     */
+    public static CompletableFuture<int[]> play(long seed, BotConfig... seats)
+    {
+        String[] names = new String[seats.length];
+        for (int i = 0; i < seats.length; ++i)
+        {
+            names[i] = seats[i].getName() + " (seat " + (i + 1) + ")";
+        }
+        final Game g = new Game(seats.length, names, Game.Display.HEADLESS, seed);
+        final CompletableFuture<int[]> result = new CompletableFuture<int[]>();
+        for (int i = 0; i < seats.length; ++i)
+        {
+            seats[i].seat(g, i, seed * 31 + i);
+        }
+        g.addObserver(new GameObserver()
+        {
+            @Override
+            public void gameEnd(String winner)
+            {
+                int[] scores = new int[g.getPlayerCount()];
+                for (int i = 0; i < scores.length; ++i)
+                {
+                    scores[i] = g.getPlayerBoard(i).getScore();
+                }
+                result.complete(scores);
+            }
+        });
+        g.start();
+        return result;
+    }
+
+    /**
+     * Plays a deal "duplicate" style, as in bridge: once for every way of seating the competitors, all at once. Every
+     * competitor plays the deal from every seat against the same opponents, so comparing their results on the deal
+     * cancels most of its luck.
+     *
+     * @param seed
+     *            the seed for the deal
+     * @param competitors
+     *            the bots (2-4), one per seat
+     * @return the competitors' results on the deal, once every game is over
+     */
+    public static CompletableFuture<DealResult> playDuplicate(long seed, final BotConfig... competitors)
+    {
+        final int n = competitors.length;
+        final int[][] seatings = permutations(n);
+        final List<CompletableFuture<int[]>> games = new ArrayList<CompletableFuture<int[]>>(seatings.length);
+        BotConfig[] seats = new BotConfig[n];
+        for (int g = 0; g < seatings.length; ++g)
+        {
+            for (int i = 0; i < n; ++i)
+            {
+                seats[i] = competitors[seatings[g][i]];
+            }
+            games.add(play(seed, seats));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(games.toArray(new CompletableFuture<?>[0]));
+        return all.thenApply(new Function<Void, DealResult>()
+        {
+            @Override
+            public DealResult apply(Void v)
+            {
+                double[] score = new double[n];
+                double[] points = new double[n];
+                for (int g = 0; g < seatings.length; ++g)
+                {
+                    int[] scores = games.get(g).join();
+                    for (int i = 0; i < n; ++i)
+                    {
+                        score[seatings[g][i]] += scores[i] / (double) seatings.length;
+                        points[seatings[g][i]] += points(scores, i) / seatings.length;
+                    }
+                }
+                return new DealResult(score, points, seatings.length);
+            }
+        });
+    }
+
+    /**
+     * Returns a seat's share of a game's result: 1 for an outright win, split evenly between the players tied for the
+     * highest score, and 0 for everyone else
+     *
+     * @param scores
+     *            the final scores, indexed by seat
+     * @param seat
+     *            the seat index
+     * @return the seat's points
+     */
+    public static double points(int[] scores, int seat)
+    {
+        int best = Integer.MIN_VALUE, winners = 0;
+        for (int s : scores)
+        {
+            if (s > best)
+            {
+                best = s;
+                winners = 1;
+            }
+            else if (s == best)
+            {
+                ++winners;
+            }
+        }
+        return (scores[seat] == best) ? 1.0 / winners : 0;
+    }
+
+    /**
+     * Returns every ordering of 0 to n-1
+     *
+     * @param n
+     *            the number of items
+     * @return the n! orderings
+     */
+    private static int[][] permutations(int n)
+    {
+        if (n == 1)
+            return new int[][] { { 0 } };
+        int[][] shorter = permutations(n - 1);
+        int[][] all = new int[shorter.length * n][];
+        int k = 0;
+        for (int[] p : shorter)
+        {
+            // Insert n-1 at every position of each ordering of the rest
+            for (int at = 0; at < n; ++at)
+            {
+                int[] q = new int[n];
+                for (int i = 0, j = 0; i < n; ++i)
+                {
+                    q[i] = (i == at) ? n - 1 : p[j++];
+                }
+                all[k++] = q;
+            }
+        }
+        return all;
+    }
+
+    /**
+     * The competitors' results on one deal, averaged over every seating
+     *
+     * @author jsnhlbr5
+     */
+    public static final class DealResult
+    {
+        private final double[] score, points;
+        private final int games;
+
+        private DealResult(double[] score, double[] points, int games)
+        {
+            this.score = score;
+            this.points = points;
+            this.games = games;
+        }
+
+        /**
+         * Returns a competitor's mean final score
+         *
+         * @param i
+         *            the competitor's index
+         * @return the mean score
+         */
+        public double getScore(int i)
+        {
+            return score[i];
+        }
+
+        /**
+         * Returns a competitor's mean share of the wins
+         *
+         * @param i
+         *            the competitor's index
+         * @return the mean points, between 0 and 1
+         */
+        public double getPoints(int i)
+        {
+            return points[i];
+        }
+
+        /**
+         * Returns how far a competitor's mean score was above the mean of every competitor's on the deal, the
+         * duplicate score that cancels the deal's luck
+         *
+         * @param i
+         *            the competitor's index
+         * @return the score margin
+         */
+        public double getMargin(int i)
+        {
+            double total = 0;
+            for (double s : score)
+            {
+                total += s;
+            }
+            return score[i] - total / score.length;
+        }
+
+        /**
+         * Returns the number of games played on the deal
+         *
+         * @return the number of games
+         */
+        public int getGames()
+        {
+            return games;
+        }
+    }
+}
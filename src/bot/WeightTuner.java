@@ -0,0 +1,262 @@
+package bot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tunes the evaluator's weights by self-play, with simultaneous perturbation stochastic approximation (SPSA). Each
+ * generation nudges every weight at random up or down at once, and plays the two resulting bots against each other on
+ * a batch of deals, each deal twice with the seats swapped; the result says which way along the nudge is better, and
+ * the weights take a step that way. Both bots play every deal, so the luck of the draw largely cancels out.
+ *
+ * A generation's games all run at once on the shared background threads, which keeps every core busy. The weights are
+ * saved after each generation, and a run picks up where its checkpoint left off. Usage:
+ *
+ * <pre>
+ * java bot.WeightTuner checkpoint.properties
+ * </pre>
+ *
+ * with the run's length and cost set by the system properties azul.tuner.generations (default 200),
+ * azul.tuner.deals per generation (default 64), and azul.tuner.nodes searched per move (default 2000). The default
+ * run takes a few hours on a desktop machine.
+ *
+ * @author jsnhlbr5
+ */
+public class WeightTuner
+{
+    /**
+     * The largest value any weight is tuned to
+     */
+    public static final double MAX_WEIGHT = 4;
+
+    // SPSA's gain sequences, a / (k + 1 + STABILITY)^0.602 and c / (k + 1)^0.101, with Spall's recommended exponents
+    private static final double STEP_GAIN = 0.5;
+    private static final double STABILITY = 10;
+    private static final double PERTURBATION_GAIN = 0.15;
+
+    private final Path checkpoint;
+    private final int deals;
+    private final long nodes;
+    private double[] weights;
+    private long seed;
+    private int generation;
+
+    /**
+     * Creates a tuner, resuming from its checkpoint if there is one and otherwise starting from the default weights
+     *
+     * @param checkpoint
+     *            where the weights are saved after each generation
+     * @param deals
+     *            the number of deals each generation plays (twice each)
+     * @param nodes
+     *            the number of nodes each bot searches per move
+     * @throws IOException
+     *             if the checkpoint exists but can't be read
+     */
+    public WeightTuner(Path checkpoint, int deals, long nodes) throws IOException
+    {
+        this.checkpoint = checkpoint;
+        this.deals = deals;
+        this.nodes = nodes;
+        weights = Evaluator.getDefaultWeights();
+        seed = new Random().nextLong();
+        if (Files.exists(checkpoint))
+            load();
+    }
+
+    /**
+     * Tunes for the given number of generations, printing each generation's result
+     *
+     * @param args
+     *            the path of the checkpoint file
+     * @throws IOException
+     *             if the checkpoint can't be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 1)
+        {
+            System.err.println("Usage: java bot.WeightTuner <checkpoint file>");
+            System.exit(1);
+        }
+        WeightTuner tuner = new WeightTuner(Paths.get(args[0]), Integer.getInteger("azul.tuner.deals", 64),
+                Long.getLong("azul.tuner.nodes", 2000));
+        int generations = Integer.getInteger("azul.tuner.generations", 200);
+        while (tuner.getGeneration() < generations)
+        {
+            tuner.runGeneration();
+        }
+        System.out.println("Tuned: " + new Evaluator(tuner.getWeights()));
+    }
+
+    /**
+     * Returns the number of generations run so far
+     *
+     * @return the number of generations run
+     */
+    public int getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Returns a copy of the current weights
+     *
+     * @return the current weights
+     */
+    public double[] getWeights()
+    {
+        return weights.clone();
+    }
+
+    /**
+     * Plays one generation's games, steps the weights and saves the checkpoint
+     *
+     * @throws IOException
+     *             if the checkpoint can't be written
+     */
+    public void runGeneration() throws IOException
+    {
+        long start = System.nanoTime();
+        int k = generation;
+        double step = STEP_GAIN / Math.pow(k + 1 + STABILITY, 0.602);
+        double perturbation = PERTURBATION_GAIN / Math.pow(k + 1, 0.101);
+
+        // The nudges and deals of each generation follow from the run's seed, so a resumed run plays the same games
+        Random rng = new Random(seed + k);
+        double[] delta = new double[Evaluator.WEIGHTS];
+        double[] plus = new double[Evaluator.WEIGHTS];
+        double[] minus = new double[Evaluator.WEIGHTS];
+        for (int i = 0; i < Evaluator.WEIGHTS; ++i)
+        {
+            delta[i] = rng.nextBoolean() ? 1 : -1;
+            plus[i] = clamp(weights[i] + perturbation * delta[i]);
+            minus[i] = clamp(weights[i] - perturbation * delta[i]);
+        }
+        BotConfig a = new BotConfig("plus", new Evaluator(plus), nodes, 0);
+        BotConfig b = new BotConfig("minus", new Evaluator(minus), nodes, 0);
+
+        List<CompletableFuture<SelfPlay.DealResult>> results = new ArrayList<CompletableFuture<SelfPlay.DealResult>>(
+                deals);
+        for (int d = 0; d < deals; ++d)
+        {
+            results.add(SelfPlay.playDuplicate(rng.nextLong(), a, b));
+        }
+        double points = 0;
+        for (CompletableFuture<SelfPlay.DealResult> r : results)
+        {
+            points += r.join().getPoints(0);
+        }
+        double share = points / deals;
+
+        // The plus bot's share less the minus bot's, over the distance between them along each weight
+        for (int i = 0; i < Evaluator.WEIGHTS; ++i)
+        {
+            double gradient = (2 * share - 1) / (2 * perturbation * delta[i]);
+            weights[i] = clamp(weights[i] + step * gradient);
+        }
+        ++generation;
+        save();
+        System.out.printf("Generation %d: plus scored %.3f in %d games (%.1f s); %s%n", generation, share, 2 * deals,
+                (System.nanoTime() - start) / 1e9, new Evaluator(weights));
+    }
+
+    /**
+     * Reads the weights, seed and generation from the checkpoint
+     *
+     * @throws IOException
+     *             if the checkpoint can't be read
+     */
+    private void load() throws IOException
+    {
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint))
+        {
+            p.load(in);
+        }
+        generation = Integer.parseInt(p.getProperty("generation"));
+        seed = Long.parseLong(p.getProperty("seed"));
+        weights = readWeights(p);
+    }
+
+    /**
+     * Reads the weights saved in a checkpoint, for bots to play with
+     *
+     * @param checkpoint
+     *            the checkpoint file
+     * @return the weights
+     * @throws IOException
+     *             if the checkpoint can't be read
+     */
+    public static double[] readWeights(Path checkpoint) throws IOException
+    {
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint))
+        {
+            p.load(in);
+        }
+        return readWeights(p);
+    }
+
+    /**
+     * Reads the weights from a checkpoint's properties
+     *
+     * @param p
+     *            the properties
+     * @return the weights
+     */
+    private static double[] readWeights(Properties p)
+    {
+        double[] w = new double[Evaluator.WEIGHTS];
+        for (int i = 0; i < Evaluator.WEIGHTS; ++i)
+        {
+            w[i] = Double.parseDouble(p.getProperty("weight." + Evaluator.getWeightName(i)));
+        }
+        return w;
+    }
+
+    /**
+     * Writes the weights, seed and generation to the checkpoint, replacing it only once the new one is complete
+     *
+     * @throws IOException
+     *             if the checkpoint can't be written
+     */
+    private void save() throws IOException
+    {
+        Properties p = new Properties();
+        p.setProperty("generation", Integer.toString(generation));
+        p.setProperty("seed", Long.toString(seed));
+        for (int i = 0; i < Evaluator.WEIGHTS; ++i)
+        {
+            p.setProperty("weight." + Evaluator.getWeightName(i), Double.toString(weights[i]));
+        }
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp))
+        {
+            p.store(out, "Evaluator weights tuned by bot.WeightTuner");
+        }
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Keeps a weight within [0, MAX_WEIGHT]
+     *
+     * @param w
+     *            the weight
+     * @return the clamped weight
+     */
+    private static double clamp(double w)
+    {
+        return Math.max(0, Math.min(MAX_WEIGHT, w));
+    }
+}
@@ -0,0 +1,316 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.Color;
+import model.Game;
+import model.PlayerBoard;
+
+/**
+ * Optional accounting of the bytes allocated by each phase of the game, for headless simulation runs. Enabled with
+ * the "azul.allocationAccounting" system property or setEnabled(); while disabled, begin() and end() do nothing but a
+ * field read. Allocation is measured per thread (through com.sun.management.ThreadMXBean), so any number of games may
+ * run concurrently, and is inclusive: a copy made during a pick counts towards both.
+ *
+ * @author jsnhlbr5
+ */
+public class AllocationAccounting
+{
+    /**
+     * The game phases that are accounted
+     *
+     * @author jsnhlbr5
+     */
+    public enum Phase
+    {
+        FACTORY_FILL("Game.resetCenter (factory fill)"),
+        PICK("Game.pickTilesFrom*"),
+        PLACE("PlayerBoard.addTilesToRow"),
+        ROUND_SCORING("PlayerBoard.finishRound"),
+        FACTORY_TILES_COPY("Game.getFactoryTiles"),
+        CENTER_TILES_COPY("Game.getCenterTiles"),
+        WALL_COPY("PlayerBoard.getWall"),
+        BUILD_ROW_COPY("PlayerBoard.getBuildRowTiles"),
+        FLOOR_LINE_COPY("PlayerBoard.getFloorLineTiles");
+
+        private final String description;
+
+        private Phase(String d)
+        {
+            description = d;
+        }
+    }
+
+    private static final Color[] COLORS = Color.values();
+
+    private static final com.sun.management.ThreadMXBean threads;
+    private static final LongAdder[] bytes = new LongAdder[Phase.values().length];
+    private static final LongAdder[] calls = new LongAdder[Phase.values().length];
+    private static volatile boolean enabled;
+    // Bytes allocated by a begin()/end() pair with nothing in between, subtracted from every measurement
+    private static long overhead;
+
+    static
+    {
+        for (int i = 0; i < bytes.length; ++i)
+        {
+            bytes[i] = new LongAdder();
+            calls[i] = new LongAdder();
+        }
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) mx).isThreadAllocatedMemorySupported())
+        {
+            threads = (com.sun.management.ThreadMXBean) mx;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < 1000; ++i)
+            {
+                long mark = allocated();
+                min = Math.min(min, allocated() - mark);
+            }
+            overhead = min;
+        }
+        else
+        {
+            threads = null;
+        }
+        setEnabled(Boolean.getBoolean("azul.allocationAccounting"));
+    }
+
+    /**
+     * Plays random headless games with accounting on and prints the per-phase report. After every move, the state is
+     * read back the way the views refresh themselves: through the non-allocating accessors they use, or with "copy",
+     * through the copying accessors, to measure what those cost.
+     *
+     * @param args
+     *            the number of games (default 1000), the number of players (default 2), and optionally "copy"
+     */
+    public static void main(String[] args)
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int players = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+        boolean copy = args.length > 2 && args[2].equals("copy");
+        setEnabled(true);
+        if (!enabled)
+        {
+            System.err.println("This JVM cannot measure per-thread allocation.");
+            return;
+        }
+        String[] names = { "Player 1", "Player 2", "Player 3", "Player 4" };
+        Random rng = new Random();
+        for (int g = 0; g < games; ++g)
+        {
+            Game game = new Game(players, names, true);
+            game.start();
+            while (!game.isFinished() && playRandomMove(game, rng))
+            {
+                if (copy)
+                    readStateByCopies(game);
+                else
+                    readState(game);
+            }
+            game.dispose();
+        }
+        System.out.print(report());
+    }
+
+    /**
+     * This class cannot be instantiated; all of its members are static
+     */
+    private AllocationAccounting()
+    {
+    }
+
+    /**
+     * Turns accounting on or off. Has no effect if the JVM cannot measure per-thread allocation.
+     *
+     * @param on
+     *            true to start accounting
+     */
+    public static void setEnabled(boolean on)
+    {
+        enabled = on && threads != null;
+    }
+
+    /**
+     * Returns true if accounting is on
+     *
+     * @return true if accounting is on
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Marks the start of an accounted phase on the current thread
+     *
+     * @return the mark to pass to end(), or -1 if accounting is off
+     */
+    public static long begin()
+    {
+        return enabled ? allocated() : -1;
+    }
+
+    /**
+     * Attributes the bytes allocated on the current thread since the given mark to a phase
+     *
+     * @param phase
+     *            the phase that just finished
+     * @param mark
+     *            the value returned by begin() when the phase started
+     */
+    public static void end(Phase phase, long mark)
+    {
+        if (mark < 0)
+            return;
+        bytes[phase.ordinal()].add(Math.max(allocated() - mark - overhead, 0));
+        calls[phase.ordinal()].increment();
+    }
+
+    /**
+     * Clears all accounted phases
+     */
+    public static void reset()
+    {
+        for (int i = 0; i < bytes.length; ++i)
+        {
+            bytes[i].reset();
+            calls[i].reset();
+        }
+    }
+
+    /**
+     * Returns a table of the calls, total bytes and bytes per call accounted to each phase
+     *
+     * @return the per-phase report, one line per phase
+     */
+    public static String report()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-36s %12s %16s %12s%n", "Phase", "Calls", "Bytes", "Bytes/call"));
+        long total = 0;
+        for (Phase p : Phase.values())
+        {
+            long n = calls[p.ordinal()].sum();
+            long b = bytes[p.ordinal()].sum();
+            total += b;
+            sb.append(String.format("%-36s %12d %16d %12.1f%n", p.description, n, b, (n == 0) ? 0.0 : b / (double) n));
+        }
+        sb.append(String.format("%-36s %12s %16d%n", "Total (phases overlap)", "", total));
+        return sb.toString();
+    }
+
+    /**
+     * Picks a random color from a random source, then places it on a random legal row
+     *
+     * @param game
+     *            the game to play in
+     * @param rng
+     *            the source of randomness
+     * @return false if there was no legal move
+     */
+    private static boolean playRandomMove(Game game, Random rng)
+    {
+        // Each option is a source (-1 for the center) and a color
+        List<int[]> options = new ArrayList<int[]>();
+        for (int f = -1; f < game.getFactoryCount(); ++f)
+        {
+            for (Color c : COLORS)
+            {
+                int count = (f < 0) ? game.getCenterColorCount(c) : game.getFactoryColorCount(f, c);
+                if (c != Color.WHITE && count > 0)
+                    options.add(new int[] { f, c.ordinal() });
+            }
+        }
+        if (options.isEmpty())
+            return false;
+        int[] pick = options.get(rng.nextInt(options.size()));
+        if (pick[0] < 0)
+            game.pickTilesFromCenter(COLORS[pick[1]]);
+        else
+            game.pickTilesFromFactory(pick[0], COLORS[pick[1]]);
+
+        PlayerBoard pb = game.getPlayerBoard(game.getCurPlayer());
+        List<Integer> rows = new ArrayList<Integer>();
+        for (int r = 0; r < 5; ++r)
+        {
+            if (pb.canAddTilesToRow(r))
+                rows.add(r);
+        }
+        // The floor line is always legal
+        rows.add(5);
+        pb.addTilesToRow(rows.get(rng.nextInt(rows.size())));
+        return true;
+    }
+
+    /**
+     * Reads the whole game state through the accessors that return copies, each accounted to its own phase
+     *
+     * @param game
+     *            the game to read
+     */
+    private static void readStateByCopies(Game game)
+    {
+        for (int f = 0; f < game.getFactoryCount(); ++f)
+        {
+            game.getFactoryTiles(f);
+        }
+        game.getCenterTiles();
+        for (int p = 0; p < game.getPlayerCount(); ++p)
+        {
+            PlayerBoard pb = game.getPlayerBoard(p);
+            for (int r = 0; r < 5; ++r)
+            {
+                pb.getBuildRowTiles(r);
+            }
+            pb.getFloorLineTiles();
+            pb.getWall();
+        }
+    }
+
+    /**
+     * Reads the whole game state through the non-allocating accessors, as the views do when they refresh
+     *
+     * @param game
+     *            the game to read
+     */
+    private static void readState(Game game)
+    {
+        for (int f = 0; f < game.getFactoryCount(); ++f)
+        {
+            for (int i = 0; i < game.getFactoryTileCount(f); ++i)
+            {
+                game.getFactoryTile(f, i);
+            }
+        }
+        for (Color c : COLORS)
+        {
+            game.getCenterColorCount(c);
+        }
+        for (int p = 0; p < game.getPlayerCount(); ++p)
+        {
+            PlayerBoard pb = game.getPlayerBoard(p);
+            for (int r = 0; r < 5; ++r)
+            {
+                pb.getBuildRowColor(r);
+                pb.getBuildRowCount(r);
+            }
+            for (int i = 0; i < pb.getFloorLineCount(); ++i)
+            {
+                pb.getFloorLineTile(i);
+            }
+            pb.getWallMask();
+        }
+    }
+
+    private static long allocated()
+    {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for refilling the factories from the bag at the start of a round (Game.resetCenter())
+ *
+ * @author jsnhlbr5
+ */
+@Name("azul.BagRefill")
+@Label("Bag Refill")
+@Category({ "Azul", "Game" })
+@Description("Filling the factories from the bag, shuffling the box lid back in if needed")
+public class BagRefillEvent extends jdk.jfr.Event
+{
+    @Label("Player Count")
+    public int playerCount;
+
+    @Label("Tiles Drawn")
+    public int tilesDrawn;
+
+    @Label("Factories Filled")
+    @Description("Factories that received at least one tile")
+    public int factoriesFilled;
+
+    @Label("Lid Tiles Returned")
+    @Description("Tiles moved from the box lid back into the bag, 0 if the bag did not run out")
+    public int lidTilesReturned;
+
+    @Label("Bag Remaining")
+    public int bagRemaining;
+}
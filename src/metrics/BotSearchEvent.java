@@ -0,0 +1,33 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one iteration of a bot's move search
+ *
+ * @author jsnhlbr5
+ */
+@Name("azul.BotSearch")
+@Label("Bot Search")
+@Category({ "Azul", "Bots" })
+@Description("One iteration of a bot's move search")
+public class BotSearchEvent extends jdk.jfr.Event
+{
+    @Label("Bot")
+    public String bot;
+
+    @Label("Player Count")
+    public int playerCount;
+
+    @Label("Iteration")
+    public int iteration;
+
+    @Label("Nodes Searched")
+    public long nodesSearched;
+
+    @Label("Best Move")
+    public String bestMove;
+}
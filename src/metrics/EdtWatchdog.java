@@ -0,0 +1,265 @@
+package metrics;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An event queue that times every task run on the event dispatch thread. A background thread samples the EDT's stack
+ * while a task runs past the stall threshold; when the stall ends it logs the duration and the most frequently sampled
+ * call site (the innermost frame in this application's code) with a representative stack trace, and keeps a running
+ * count of stalls per call site so repeat offenders stand out.
+ *
+ * The threshold (in milliseconds) is read from the "azul.edtStallThreshold" system property, default 200; 0 or less
+ * disables the watchdog. Events pumped by a modal dialog's nested loop are timed on their own, and the time spent
+ * waiting for the next event is never counted, so a dialog left open is not reported as a stall.
+ *
+ * @author jsnhlbr5
+ */
+public class EdtWatchdog extends EventQueue
+{
+    private static final Logger log = Logger.getLogger(EdtWatchdog.class.getName());
+
+    private static final int DEFAULT_THRESHOLD = 200;
+    // Stack samples are taken at this fraction of the threshold, so even a short stall gets a few
+    private static final int SAMPLES_PER_THRESHOLD = 4;
+
+    private static EdtWatchdog installed;
+
+    private final long thresholdNanos;
+    private final Map<String, LongAdder> offenders = new ConcurrentHashMap<String, LongAdder>();
+
+    // Written by the EDT, read by the sampling thread
+    private volatile Thread edt;
+    private volatile long dispatchStart;
+    private volatile long dispatchId;
+    // Only touched on the EDT
+    private int depth;
+    private long nextId;
+
+    /**
+     * Installs the watchdog on the system event queue, using the threshold from the "azul.edtStallThreshold" system
+     * property. Does nothing if it has already been installed or is disabled.
+     */
+    public static synchronized void install()
+    {
+        int threshold = Integer.getInteger("azul.edtStallThreshold", DEFAULT_THRESHOLD);
+        if (installed != null || threshold <= 0)
+            return;
+        installed = new EdtWatchdog(threshold);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+    }
+
+    /**
+     * Returns the number of stalls recorded for each call site since the watchdog was installed, most frequent first
+     *
+     * @return a description of each offending call site and its stall count, or an empty list if not installed
+     */
+    public static synchronized List<String> getOffenders()
+    {
+        List<String> list = new ArrayList<String>();
+        if (installed == null)
+            return list;
+        List<Map.Entry<String, LongAdder>> entries = new ArrayList<Map.Entry<String, LongAdder>>(
+                installed.offenders.entrySet());
+        entries.sort(new Comparator<Map.Entry<String, LongAdder>>()
+        {
+            @Override
+            public int compare(Map.Entry<String, LongAdder> a, Map.Entry<String, LongAdder> b)
+            {
+                return Long.compare(b.getValue().sum(), a.getValue().sum());
+            }
+        });
+        for (Map.Entry<String, LongAdder> e : entries)
+        {
+            list.add(e.getKey() + ": " + e.getValue().sum());
+        }
+        return list;
+    }
+
+    /**
+     * Creates a watchdog with the given stall threshold and starts its sampling thread
+     *
+     * @param thresholdMillis
+     *            how long a single EDT task may run before it is reported, in milliseconds
+     */
+    private EdtWatchdog(int thresholdMillis)
+    {
+        thresholdNanos = thresholdMillis * 1_000_000L;
+        Thread sampler = new Thread(new Sampler(Math.max(thresholdMillis / SAMPLES_PER_THRESHOLD, 1)),
+                "Azul EDT watchdog");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops the clock while the EDT waits for an event, so that a modal dialog's nested loop sitting idle is not
+     * counted against the task that opened it.
+     */
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException
+    {
+        if (dispatchStart != 0)
+        {
+            dispatchId = ++nextId;
+            dispatchStart = 0;
+        }
+        return super.getNextEvent();
+    }
+
+    /**
+     * Times the dispatch of each event. A nested dispatch (from a modal dialog) pauses the timing of the one it
+     * interrupted, which restarts once the nested event is done; the nested loop's wait for its next event stops it
+     * again.
+     */
+    @Override
+    protected void dispatchEvent(AWTEvent event)
+    {
+        edt = Thread.currentThread();
+        ++depth;
+        dispatchId = ++nextId;
+        dispatchStart = System.nanoTime();
+        try
+        {
+            super.dispatchEvent(event);
+        }
+        finally
+        {
+            --depth;
+            dispatchId = ++nextId;
+            dispatchStart = (depth > 0) ? System.nanoTime() : 0;
+        }
+    }
+
+    /**
+     * Records a finished stall and logs it
+     *
+     * @param millis
+     *            the approximate length of the stall
+     * @param samples
+     *            the EDT stacks sampled during the stall
+     */
+    private void report(long millis, List<StackTraceElement[]> samples)
+    {
+        // Find the call site seen in the most samples
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        String site = "(unknown)";
+        StackTraceElement[] example = samples.get(0);
+        int best = 0;
+        for (StackTraceElement[] stack : samples)
+        {
+            String s = callSite(stack);
+            Integer seen = counts.get(s);
+            int n = (seen == null) ? 1 : seen + 1;
+            counts.put(s, n);
+            if (n > best)
+            {
+                best = n;
+                site = s;
+                example = stack;
+            }
+        }
+        offenders.computeIfAbsent(site, new Function<String, LongAdder>()
+        {
+            @Override
+            public LongAdder apply(String k)
+            {
+                return new LongAdder();
+            }
+        }).increment();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("EDT stalled for ~").append(millis).append(" ms in ").append(site).append(" (").append(best)
+                .append('/').append(samples.size()).append(" samples; stall #")
+                .append(offenders.get(site).sum()).append(" there)");
+        for (StackTraceElement e : example)
+        {
+            sb.append("\n\tat ").append(e);
+        }
+        log.log(Level.WARNING, sb.toString());
+    }
+
+    /**
+     * Returns the innermost frame of a stack that belongs to this application rather than the JDK
+     *
+     * @param stack
+     *            the sampled stack
+     * @return the class and method name of that frame
+     */
+    private static String callSite(StackTraceElement[] stack)
+    {
+        for (StackTraceElement e : stack)
+        {
+            String c = e.getClassName();
+            if (!(c.startsWith("java.") || c.startsWith("javax.") || c.startsWith("sun.") || c.startsWith("jdk.")
+                    || c.startsWith("com.sun.") || c.equals(EdtWatchdog.class.getName())))
+                return c + "." + e.getMethodName();
+        }
+        return (stack.length > 0) ? stack[0].getClassName() + "." + stack[0].getMethodName() : "(unknown)";
+    }
+
+    /**
+     * Polls the dispatch state and samples the EDT's stack while a task is over the threshold
+     *
+     * @author jsnhlbr5
+     */
+    private class Sampler implements Runnable
+    {
+        private final long interval;
+
+        public Sampler(long intervalMillis)
+        {
+            interval = intervalMillis;
+        }
+
+        @Override
+        public void run()
+        {
+            long stallId = -1, stallStart = 0, lastSample = 0;
+            List<StackTraceElement[]> samples = new ArrayList<StackTraceElement[]>();
+            while (true)
+            {
+                try
+                {
+                    Thread.sleep(interval);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                long id = dispatchId;
+                long start = dispatchStart;
+                long now = System.nanoTime();
+                if (stallId != -1 && id != stallId)
+                {
+                    // The stalled task has finished
+                    report((lastSample - stallStart) / 1_000_000, samples);
+                    samples = new ArrayList<StackTraceElement[]>();
+                    stallId = -1;
+                }
+                if (start != 0 && now - start > thresholdNanos)
+                {
+                    StackTraceElement[] stack = edt.getStackTrace();
+                    // Make sure the same task is still running now that the stack has been taken
+                    if (dispatchId == id)
+                    {
+                        stallId = id;
+                        stallStart = start;
+                        lastSample = System.nanoTime();
+                        samples.add(stack);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide game counters and latency timers for the game loop and view refreshes, registered with the platform
+ * MBean server under the "azul" domain so that they can be watched live in JConsole or VisualVM.
+ *
+ * @author jsnhlbr5
+ */
+public class GameMetrics implements GameMetricsMBean
+{
+    /**
+     * Game.pickTilesFromFactory()
+     */
+    public static final LatencyTimer PICK_FROM_FACTORY = new LatencyTimer("Game.pickTilesFromFactory");
+    /**
+     * Game.pickTilesFromCenter()
+     */
+    public static final LatencyTimer PICK_FROM_CENTER = new LatencyTimer("Game.pickTilesFromCenter");
+    /**
+     * The round-finishing (tiling, scoring and discard) phase of Game.endTurn()
+     */
+    public static final LatencyTimer END_TURN_ROUND_FINISH = new LatencyTimer("Game.endTurn.roundFinish");
+    /**
+     * The common area refill (Game.resetCenter()) phase of Game.endTurn()
+     */
+    public static final LatencyTimer END_TURN_RESET_CENTER = new LatencyTimer("Game.endTurn.resetCenter");
+    /**
+     * PlayerBoard.finishRound()
+     */
+    public static final LatencyTimer FINISH_ROUND = new LatencyTimer("PlayerBoard.finishRound");
+    /**
+     * PlayerBoardView.updateTiles()
+     */
+    public static final LatencyTimer PLAYER_BOARD_VIEW_UPDATE = new LatencyTimer("PlayerBoardView.updateTiles");
+    /**
+     * CenterAreaView.updateTiles()
+     */
+    public static final LatencyTimer CENTER_VIEW_UPDATE = new LatencyTimer("CenterAreaView.updateTiles");
+    /**
+     * FactoryView.updateTiles()
+     */
+    public static final LatencyTimer FACTORY_VIEW_UPDATE = new LatencyTimer("FactoryView.updateTiles");
+
+    private static final LatencyTimer[] timers = { PICK_FROM_FACTORY, PICK_FROM_CENTER, END_TURN_ROUND_FINISH,
+            END_TURN_RESET_CENTER, FINISH_ROUND, PLAYER_BOARD_VIEW_UPDATE, CENTER_VIEW_UPDATE, FACTORY_VIEW_UPDATE };
+
+    private static final GameMetrics instance = new GameMetrics();
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    static
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(instance, new ObjectName("azul:type=GameMetrics"));
+            for (LatencyTimer t : timers)
+            {
+                server.registerMBean(t, new ObjectName("azul:type=LatencyTimer,name=" + t.getName()));
+            }
+        }
+        catch (JMException e)
+        {// Do nothing (metrics are still collected, just not visible over JMX)
+        }
+    }
+
+    /**
+     * Only the single static instance can exist
+     */
+    private GameMetrics()
+    {
+    }
+
+    /**
+     * Records that a game has started
+     */
+    public static void gameStarted()
+    {
+        instance.started.increment();
+    }
+
+    /**
+     * Records that a game has been played to completion
+     */
+    public static void gameFinished()
+    {
+        instance.finished.increment();
+    }
+
+    /**
+     * Records that a game has been quit before completion
+     */
+    public static void gameAbandoned()
+    {
+        instance.abandoned.increment();
+    }
+
+    @Override
+    public long getGamesStarted()
+    {
+        return started.sum();
+    }
+
+    @Override
+    public long getGamesFinished()
+    {
+        return finished.sum();
+    }
+
+    @Override
+    public long getGamesAbandoned()
+    {
+        return abandoned.sum();
+    }
+
+    @Override
+    public long getGamesInProgress()
+    {
+        return started.sum() - finished.sum() - abandoned.sum();
+    }
+
+    @Override
+    public void reset()
+    {
+        started.reset();
+        finished.reset();
+        abandoned.reset();
+        for (LatencyTimer t : timers)
+        {
+            t.reset();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package metrics;
+
+/**
+ * Management interface for GameMetrics, as shown in JConsole/VisualVM
+ *
+ * @author jsnhlbr5
+ */
+public interface GameMetricsMBean
+{
+    /**
+     * Returns the number of games started in this JVM
+     *
+     * @return the number of games started in this JVM
+     */
+    public long getGamesStarted();
+
+    /**
+     * Returns the number of games played to completion in this JVM
+     *
+     * @return the number of games played to completion in this JVM
+     */
+    public long getGamesFinished();
+
+    /**
+     * Returns the number of games quit before completion in this JVM
+     *
+     * @return the number of games quit before completion in this JVM
+     */
+    public long getGamesAbandoned();
+
+    /**
+     * Returns the number of games currently in progress
+     *
+     * @return the number of games currently in progress
+     */
+    public long getGamesInProgress();
+
+    /**
+     * Clears the game counters and every latency timer
+     */
+    public void reset();
+}
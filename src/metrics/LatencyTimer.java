@@ -0,0 +1,196 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A lock-free latency histogram. Durations are counted in power-of-two nanosecond buckets (each divided into eight
+ * sub-buckets), so recording is a couple of atomic increments. A percentile is reported as the upper bound of its
+ * bucket, capped at the maximum, so it is never below the true value and at most 12.5% above it.
+ *
+ * @author jsnhlbr5
+ */
+public class LatencyTimer implements LatencyTimerMBean
+{
+    // 8 sub-buckets per power of two, covering the full range of a positive long
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int BUCKETS = 64 << SUB_BUCKET_BITS;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(new LongBinaryOperator()
+    {
+        @Override
+        public long applyAsLong(long a, long b)
+        {
+            return Math.max(a, b);
+        }
+    }, 0);
+
+    /**
+     * Creates a new, empty timer
+     *
+     * @param name
+     *            the name this timer is registered under
+     */
+    public LatencyTimer(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name this timer is registered under
+     *
+     * @return the name this timer is registered under
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the current time, to be passed to stop() when the timed section ends
+     *
+     * @return the current value of System.nanoTime()
+     */
+    public long start()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since the given start time
+     *
+     * @param start
+     *            the value returned by start()
+     */
+    public void stop(long start)
+    {
+        record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a single duration
+     *
+     * @param nanos
+     *            the duration, in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(bucketFor(nanos));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMillis()
+    {
+        long n = count.sum();
+        return (n == 0) ? 0 : total.sum() / (double) n / 1e6;
+    }
+
+    @Override
+    public double getMedianMillis()
+    {
+        return percentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double get99thPercentileMillis()
+    {
+        return percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis()
+    {
+        return max.get() / 1e6;
+    }
+
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; ++i)
+        {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given fraction of recorded durations
+     *
+     * @param fraction
+     *            the percentile, as a fraction between 0 and 1
+     * @return the approximate duration at that percentile, in nanoseconds
+     */
+    private long percentile(double fraction)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; ++i)
+        {
+            snapshot[i] = buckets.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0)
+            return 0;
+        long target = (long) Math.ceil(n * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i)
+        {
+            seen += snapshot[i];
+            if (seen >= target)
+                return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the bucket for a duration: the position of its highest set bit, plus the next SUB_BUCKET_BITS bits
+     *
+     * @param nanos
+     *            the non-negative duration
+     * @return the bucket index
+     */
+    private static int bucketFor(long nanos)
+    {
+        if (nanos < (1 << SUB_BUCKET_BITS))
+            return (int) nanos;
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((magnitude - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+    }
+
+    /**
+     * Returns the largest duration that falls into the given bucket
+     *
+     * @param bucket
+     *            the bucket index
+     * @return the largest duration in that bucket, in nanoseconds
+     */
+    private static long upperBound(int bucket)
+    {
+        if (bucket < (1 << SUB_BUCKET_BITS))
+            return bucket;
+        int magnitude = (bucket >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+        long lower = (1L << magnitude) | (sub << (magnitude - SUB_BUCKET_BITS));
+        return lower + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,49 @@
+package metrics;
+
+/**
+ * Management interface for a LatencyTimer, as shown in JConsole/VisualVM
+ *
+ * @author jsnhlbr5
+ */
+public interface LatencyTimerMBean
+{
+    /**
+     * Returns the number of timed calls
+     *
+     * @return the number of timed calls
+     */
+    public long getCount();
+
+    /**
+     * Returns the mean duration of the timed calls, in milliseconds
+     *
+     * @return the mean duration of the timed calls, in milliseconds
+     */
+    public double getMeanMillis();
+
+    /**
+     * Returns the approximate median duration, in milliseconds
+     *
+     * @return the approximate median duration, in milliseconds
+     */
+    public double getMedianMillis();
+
+    /**
+     * Returns the approximate 99th percentile duration, in milliseconds
+     *
+     * @return the approximate 99th percentile duration, in milliseconds
+     */
+    public double get99thPercentileMillis();
+
+    /**
+     * Returns the longest duration, in milliseconds
+     *
+     * @return the longest duration, in milliseconds
+     */
+    public double getMaxMillis();
+
+    /**
+     * Clears all recorded durations
+     */
+    public void reset();
+}
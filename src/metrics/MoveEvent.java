@@ -0,0 +1,47 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for applying a single move: picking tiles from a factory or the center area, or placing them
+ * on a player's board
+ *
+ * @author jsnhlbr5
+ */
+@Name("azul.Move")
+@Label("Move")
+@Category({ "Azul", "Game" })
+@Description("A player picking tiles or placing them on their board")
+public class MoveEvent extends jdk.jfr.Event
+{
+    @Label("Action")
+    @Description("\"pick\" or \"place\"")
+    public String action;
+
+    @Label("Player")
+    public String player;
+
+    @Label("Player Count")
+    public int playerCount;
+
+    @Label("Source")
+    @Description("Factory index picked from, or -1 for the center area (picks only)")
+    public int source;
+
+    @Label("Row")
+    @Description("Build row placed on, 5 for the floor line (placements only)")
+    public int row;
+
+    @Label("Color")
+    public String color;
+
+    @Label("Tiles Moved")
+    public int tilesMoved;
+
+    @Label("Tiles Floored")
+    @Description("Tiles that went to the floor line, including the first player tile")
+    public int tilesFloored;
+}
@@ -0,0 +1,36 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one player's end-of-round tiling and scoring (PlayerBoard.finishRound())
+ *
+ * @author jsnhlbr5
+ */
+@Name("azul.RoundScored")
+@Label("Round Scored")
+@Category({ "Azul", "Game" })
+@Description("End-of-round tiling and scoring of one player's board")
+public class RoundScoredEvent extends jdk.jfr.Event
+{
+    @Label("Player")
+    public String player;
+
+    @Label("Player Count")
+    public int playerCount;
+
+    @Label("Rows Tiled")
+    public int rowsTiled;
+
+    @Label("Tiles Discarded")
+    public int tilesDiscarded;
+
+    @Label("Score Before")
+    public int scoreBefore;
+
+    @Label("Score After")
+    public int scoreAfter;
+}
@@ -0,0 +1,24 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a view bringing itself up to date with the model
+ *
+ * @author jsnhlbr5
+ */
+@Name("azul.ViewRedraw")
+@Label("View Redraw")
+@Category({ "Azul", "Rendering" })
+@Description("A view updating its tiles to match the model")
+public class ViewRedrawEvent extends jdk.jfr.Event
+{
+    @Label("View")
+    public String view;
+
+    @Label("Tiles Shown")
+    public int tilesShown;
+}
@@ -0,0 +1,75 @@
+package model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The single pool of background threads shared by every game in the process: image loading, event delivery to
+ * subscribers and any other work that must stay off the event dispatch thread. Its threads are daemons, so it never
+ * keeps the application alive.
+ *
+ * @author jsnhlbr5
+ */
+public class BackgroundExecutor
+{
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "Azul worker " + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /**
+     * A single thread for short tasks that must run at a given time, such as handing over a bot's move at its deadline;
+     * it runs at high priority so that it keeps time even when the pool is busy
+     */
+    private static final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "Azul timer");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MAX_PRIORITY);
+                    return t;
+                }
+            });
+
+    /**
+     * This class cannot be instantiated; all of its members are static
+     */
+    private BackgroundExecutor()
+    {
+    }
+
+    /**
+     * Returns the shared executor
+     *
+     * @return the shared executor
+     */
+    public static ExecutorService get()
+    {
+        return executor;
+    }
+
+    /**
+     * Returns the shared timer, for short tasks that must run on time; anything longer belongs on get()
+     *
+     * @return the shared timer
+     */
+    public static ScheduledExecutorService getScheduler()
+    {
+        return scheduler;
+    }
+}
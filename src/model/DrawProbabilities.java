@@ -0,0 +1,429 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The exact odds of what the next refill of the factories will show, worked out from the tile counts in the bag and
+ * the box lid. Each factory draws 4 tiles from the bag in turn; if the bag runs out, the box lid is tipped into it and
+ * the draw carries on, and if that runs out too the remaining factories stay empty. Tiles drawn from a well-shuffled
+ * bag are a multivariate hypergeometric sample of its colors, so every probability here follows from binomial
+ * coefficients with no sampling: the totals of each color across the factories, what any one factory shows, and the
+ * chance that some factory shows at least a given number of one color.
+ *
+ * Instances are immutable and shared: of() keeps the most recently used results, keyed by the factory count and the
+ * bag and lid counts, so asking again about the same tiles costs a lookup.
+ *
+ * @author jsnhlbr5
+ */
+public final class DrawProbabilities
+{
+    /**
+     * The number of colors drawn from the bag (all but WHITE)
+     */
+    public static final int COLORS = 5;
+
+    /**
+     * The most tiles of one color in the game
+     */
+    private static final int TILES_PER_COLOR = 20;
+    /**
+     * The number of results kept by of()
+     */
+    private static final int CACHE_SIZE = 4096;
+
+    // Binomial coefficients up to choosing from the whole bag, which are exact in a double up to about 2^53
+    private static final double[][] binomial = new double[COLORS * TILES_PER_COLOR + 1][];
+
+    static
+    {
+        for (int n = 0; n < binomial.length; ++n)
+        {
+            binomial[n] = new double[n + 1];
+            binomial[n][0] = binomial[n][n] = 1;
+            for (int k = 1; k < n; ++k)
+            {
+                binomial[n][k] = binomial[n - 1][k - 1] + binomial[n - 1][k];
+            }
+        }
+    }
+
+    private static final Map<Long, DrawProbabilities> cache = new LinkedHashMap<Long, DrawProbabilities>(16, 0.75f,
+            true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, DrawProbabilities> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final int factories;
+    private final int[] bag, lid;
+    private final int bagSize, lidSize;
+    // Tiles drawn from the bag before it runs out, and from the lid after
+    private final int fromBag, fromLid;
+    // Indexed [color][count], for the total across the factories and for [factory][color][count] in each one
+    private final double[][] totals;
+    private final double[][][] perFactory;
+    // The chance that at least one factory shows at least k tiles of a color, indexed [color][k]
+    private final double[][] atLeast;
+
+    /**
+     * Works out the odds for the given tiles
+     *
+     * @param factories
+     *            the number of factories
+     * @param bag
+     *            the tiles of each color in the bag
+     * @param lid
+     *            the tiles of each color in the box lid
+     */
+    private DrawProbabilities(int factories, int[] bag, int[] lid)
+    {
+        this.factories = factories;
+        this.bag = bag;
+        this.lid = lid;
+        bagSize = sum(bag);
+        lidSize = sum(lid);
+        fromBag = Math.min(bagSize, 4 * factories);
+        fromLid = Math.min(lidSize, 4 * factories - fromBag);
+
+        totals = new double[COLORS][];
+        perFactory = new double[factories][COLORS][];
+        atLeast = new double[COLORS][5];
+        for (int c = 0; c < COLORS; ++c)
+        {
+            double[] a = hypergeometric(bag[c], bagSize, fromBag);
+            double[] b = hypergeometric(lid[c], lidSize, fromLid);
+            totals[c] = convolve(a, b);
+            for (int f = 0; f < factories; ++f)
+            {
+                perFactory[f][c] = convolve(hypergeometric(bag[c], bagSize, fromBagAt(f)),
+                        hypergeometric(lid[c], lidSize, fromLidAt(f)));
+            }
+            atLeast[c][0] = 1;
+            for (int k = 1; k <= 4; ++k)
+            {
+                atLeast[c][k] = 1 - allBelow(k, a, b);
+            }
+        }
+    }
+
+    /**
+     * Returns the odds for the next refill of the given game's factories, from the bag and the box lid as they are
+     * now. During a round, the lid has yet to collect the tiles discarded when the round is scored; those only matter
+     * if the bag runs out. Must be called on the thread playing the game.
+     *
+     * @param g
+     *            the game
+     * @return the odds
+     */
+    public static DrawProbabilities of(Game g)
+    {
+        int[] bag = new int[COLORS];
+        int[] lid = new int[COLORS];
+        for (int c = 0; c < COLORS; ++c)
+        {
+            Color color = Color.values()[c];
+            bag[c] = g.getBagColorCount(color);
+            lid[c] = g.getBoxLidColorCount(color);
+        }
+        return of(g.getFactoryCount(), bag, lid);
+    }
+
+    /**
+     * Returns the odds for a refill of the given number of factories from the given tiles. Safe to call from any
+     * thread.
+     *
+     * @param factories
+     *            the number of factories (5, 7 or 9)
+     * @param bag
+     *            the tiles of each color in the bag, indexed by color ordinal
+     * @param lid
+     *            the tiles of each color in the box lid, indexed by color ordinal
+     * @return the odds
+     * @throws IllegalArgumentException
+     *             if a count is negative or more than there are tiles of that color, or there are more than 15
+     *             factories
+     */
+    public static DrawProbabilities of(int factories, int[] bag, int[] lid)
+    {
+        if (factories < 0 || factories > 15)
+            throw new IllegalArgumentException("Invalid factory count: " + factories);
+        long key = factories;
+        for (int c = 0; c < COLORS; ++c)
+        {
+            if (bag[c] < 0 || lid[c] < 0 || bag[c] + lid[c] > TILES_PER_COLOR)
+                throw new IllegalArgumentException("Invalid tile counts for " + Color.values()[c] + ": " + bag[c]
+                        + " in the bag, " + lid[c] + " in the lid");
+            key = (key << 10) | (bag[c] << 5) | lid[c];
+        }
+        synchronized (cache)
+        {
+            DrawProbabilities p = cache.get(key);
+            if (p == null)
+            {
+                p = new DrawProbabilities(factories, bag.clone(), lid.clone());
+                cache.put(key, p);
+            }
+            return p;
+        }
+    }
+
+    /**
+     * Returns whether the bag will run out during the refill, so that the box lid is tipped back in
+     *
+     * @return true if the lid will be used
+     */
+    public boolean isRefillNeeded()
+    {
+        return bagSize < 4 * factories;
+    }
+
+    /**
+     * Returns the number of tiles the refill will put out, which is less than 4 in every factory only if the bag and
+     * the lid together run out
+     *
+     * @return the number of tiles drawn
+     */
+    public int getTilesDrawn()
+    {
+        return fromBag + fromLid;
+    }
+
+    /**
+     * Returns the number of tiles the refill will draw after the lid has been tipped into the bag
+     *
+     * @return the number of tiles drawn from the lid
+     */
+    public int getLidTilesDrawn()
+    {
+        return fromLid;
+    }
+
+    /**
+     * Returns the chance that the factories will show exactly the given numbers of each color between them
+     *
+     * @param counts
+     *            the number of tiles of each color, indexed by color ordinal
+     * @return the probability
+     */
+    public double getProbability(int[] counts)
+    {
+        // Once the bag runs out all of it is drawn, so only the lid's share is left to chance
+        double ways = 1;
+        int drawn = 0;
+        for (int c = 0; c < COLORS; ++c)
+        {
+            int lidPart = isRefillNeeded() ? counts[c] - bag[c] : 0;
+            int bagPart = counts[c] - lidPart;
+            if (bagPart < 0 || bagPart > bag[c] || lidPart < 0 || lidPart > lid[c])
+                return 0;
+            ways *= binomial[bag[c]][bagPart] * binomial[lid[c]][lidPart];
+            drawn += counts[c];
+        }
+        if (drawn != getTilesDrawn())
+            return 0;
+        return ways / (binomial[bagSize][fromBag] * binomial[lidSize][fromLid]);
+    }
+
+    /**
+     * Returns the distribution of the number of tiles of a color across all the factories
+     *
+     * @param c
+     *            the color
+     * @return the probability of each count, indexed by count
+     */
+    public double[] getTotalDistribution(Color c)
+    {
+        return totals[c.ordinal()].clone();
+    }
+
+    /**
+     * Returns the expected number of tiles of a color across all the factories
+     *
+     * @param c
+     *            the color
+     * @return the expected count
+     */
+    public double getExpectedTotal(Color c)
+    {
+        int i = c.ordinal();
+        double expected = 0;
+        if (bagSize > 0)
+            expected += fromBag * bag[i] / (double) bagSize;
+        if (lidSize > 0)
+            expected += fromLid * lid[i] / (double) lidSize;
+        return expected;
+    }
+
+    /**
+     * Returns the distribution of the number of tiles of a color in one factory
+     *
+     * @param factory
+     *            the factory
+     * @param c
+     *            the color
+     * @return the probability of each count from 0 to 4, indexed by count
+     */
+    public double[] getFactoryDistribution(int factory, Color c)
+    {
+        double[] d = new double[5];
+        double[] p = perFactory[factory][c.ordinal()];
+        System.arraycopy(p, 0, d, 0, Math.min(p.length, d.length));
+        return d;
+    }
+
+    /**
+     * Returns the chance that at least one factory will show at least the given number of tiles of a color
+     *
+     * @param c
+     *            the color
+     * @param k
+     *            the number of tiles (0-4)
+     * @return the probability
+     */
+    public double getChanceOfFactoryWith(Color c, int k)
+    {
+        return atLeast[c.ordinal()][k];
+    }
+
+    /**
+     * Returns the number of a factory's tiles that come from the bag before it runs out
+     *
+     * @param f
+     *            the factory
+     * @return the number of tiles
+     */
+    private int fromBagAt(int f)
+    {
+        return Math.max(0, Math.min(4, fromBag - 4 * f));
+    }
+
+    /**
+     * Returns the number of a factory's tiles that come from the lid
+     *
+     * @param f
+     *            the factory
+     * @return the number of tiles
+     */
+    private int fromLidAt(int f)
+    {
+        int start = Math.max(4 * f, fromBag);
+        return Math.max(0, Math.min(4 * f + 4, fromBag + fromLid) - start);
+    }
+
+    /**
+     * Returns the chance that every factory shows fewer than k tiles of a color. Laid out in drawing order, the tiles
+     * from the bag put the color's tiles at a random subset of their places, as do the tiles from the lid; so for each
+     * possible number from each, count the ways of placing them with fewer than k in every factory, factory by factory.
+     *
+     * @param k
+     *            the number of tiles (1-4)
+     * @param fromBagDist
+     *            the distribution of the color's tiles drawn from the bag
+     * @param fromLidDist
+     *            the distribution of the color's tiles drawn from the lid
+     * @return the probability
+     */
+    private double allBelow(int k, double[] fromBagDist, double[] fromLidDist)
+    {
+        int na = fromBagDist.length, nb = fromLidDist.length;
+        // ways[a][b]: the ways to place a bag tiles and b lid tiles of the color in the factories so far
+        double[][] ways = new double[na][nb];
+        ways[0][0] = 1;
+        for (int f = 0; f < factories; ++f)
+        {
+            int slotsA = fromBagAt(f), slotsB = fromLidAt(f);
+            double[][] next = new double[na][nb];
+            for (int a = 0; a < na; ++a)
+            {
+                for (int b = 0; b < nb; ++b)
+                {
+                    if (ways[a][b] == 0)
+                        continue;
+                    for (int x = 0; x <= slotsA && a + x < na; ++x)
+                    {
+                        for (int y = 0; y <= slotsB && x + y < k && b + y < nb; ++y)
+                        {
+                            next[a + x][b + y] += ways[a][b] * binomial[slotsA][x] * binomial[slotsB][y];
+                        }
+                    }
+                }
+            }
+            ways = next;
+        }
+        double p = 0;
+        for (int a = 0; a < na; ++a)
+        {
+            for (int b = 0; b < nb; ++b)
+            {
+                if (ways[a][b] > 0)
+                    p += fromBagDist[a] * fromLidDist[b] * ways[a][b] / (binomial[fromBag][a] * binomial[fromLid][b]);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Returns the distribution of the number of tiles of one color in a draw without replacement
+     *
+     * @param ofColor
+     *            the tiles of the color
+     * @param size
+     *            the tiles in all
+     * @param drawn
+     *            the tiles drawn (at most size)
+     * @return the probability of each count from 0 to the most that can be drawn, indexed by count
+     */
+    private static double[] hypergeometric(int ofColor, int size, int drawn)
+    {
+        double[] d = new double[Math.min(ofColor, drawn) + 1];
+        double all = binomial[size][drawn];
+        for (int k = Math.max(0, drawn - (size - ofColor)); k < d.length; ++k)
+        {
+            d[k] = binomial[ofColor][k] * binomial[size - ofColor][drawn - k] / all;
+        }
+        return d;
+    }
+
+    /**
+     * Returns the distribution of the sum of two independent counts
+     *
+     * @param a
+     *            the first count's distribution
+     * @param b
+     *            the second count's distribution
+     * @return the sum's distribution
+     */
+    private static double[] convolve(double[] a, double[] b)
+    {
+        double[] d = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; ++i)
+        {
+            for (int j = 0; j < b.length; ++j)
+            {
+                d[i + j] += a[i] * b[j];
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Returns the sum of the counts
+     *
+     * @param counts
+     *            the counts
+     * @return the sum
+     */
+    private static int sum(int[] counts)
+    {
+        int s = 0;
+        for (int i = 0; i < COLORS; ++i)
+        {
+            s += counts[i];
+        }
+        return s;
+    }
+}
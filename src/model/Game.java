@@ -1,15 +1,37 @@
 package model;
 
+import java.awt.Dialog;
 import java.awt.GraphicsEnvironment;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 
-import javax.swing.JFrame;
+import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import metrics.AllocationAccounting;
+import metrics.BagRefillEvent;
+import metrics.EdtWatchdog;
+import metrics.GameMetrics;
+import metrics.MoveEvent;
 import view.CommonAreaView;
 import view.GameObserver;
+import view.GameWindow;
+import view.PlayerBoardView;
+import view.UpdateBus;
+import view.ViewUtils;
 
 /**
  * The main logic class; this is the entry point for creating a single game
@@ -24,19 +46,78 @@ public class Game
     private TileCollection[] factories;
     private TileCollection centerArea;
     private TileCollection boxLid;
+    // Picks the first player, and is reseeded from the seed and round number for each round's draw
+    private final long seed;
+    private final Random random;
+    private int round;
+    // Running aggregates, kept up to date by every mutation so the queries on them are O(1)
+    private int[][] factoryColors;
+    private int[] centerColors;
+    private int[] colorsRemaining;
+    private int tilesRemaining;
+    private int[] bagColors;
+    private int[] lidColors;
+    private final Display display;
+    private final boolean headless;
     private CommonAreaView cav;
+    private GameWindow window;
+    private UpdateBus updateBus;
 
     private ArrayList<GameObserver> observers;
+    private ArrayList<TurnListener> turnListeners;
+    // Who chooses each seat's moves, and how long they may take (0 for no limit)
+    private Player[] seats;
+    private long[] timeLimits;
+    private Executor gameThread;
+    // Counts turns, so a move that arrives after its turn has ended is never played
+    private int turn;
+    private SubmissionPublisher<GameEvent> events;
+    private AtomicLong droppedEvents;
+    private boolean started, finished;
+    // Set once the game is closed, from whatever thread closes it, so that no late answer is played into it
+    private volatile boolean disposed;
     private int curPlayer;
     private String winner;
 
+    /**
+     * The ways a game can present itself
+     */
+    public enum Display
+    {
+        /** The common area and each player board get their own window */
+        WINDOWS,
+        /** A single window holds the common area and a tab per player board; boards are built when first shown */
+        SINGLE_WINDOW,
+        /** No windows or dialogs at all */
+        HEADLESS
+    }
+
     /**
      * The number of factories to use for a given number of players; 0 and 1 are not valid numbers of players
      */
     private static final int[] factoryCount = { -1, -1, 5, 7, 9 };
 
+    /**
+     * The number of events buffered for each subscriber before further events for it are dropped
+     */
+    private static final int EVENT_BUFFER_SIZE = 256;
+
     private static final String[] defaultNames = { "Player 1", "Player 2", "Player 3", "Player 4" };
 
+    /**
+     * Spreads consecutive round numbers across the seed space (the golden ratio, as a 64-bit fraction)
+     */
+    private static final long ROUND_SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private static final Executor eventDispatchThread = new Executor()
+    {
+        @Override
+        public void execute(Runnable r)
+        {
+            SwingUtilities.invokeLater(r);
+        }
+    };
+
     /**
      * Runs a single game and exits. The number of players can be set using the first command line argument, the default
      * is 2.
@@ -63,6 +144,11 @@ public class Game
 
         final int passablePlayers = players;
 
+        // Decode the images while the look and feel is set up, rather than on the EDT while building windows
+        ViewUtils.preloadImages();
+        // Log any event dispatch thread stalls, with stack traces of where they happened
+        EdtWatchdog.install();
+
         try
         {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -82,17 +168,44 @@ public class Game
     }
 
     /**
-     * Sets the visibility of all the generated windows
+     * Sets the visibility of all the generated windows. The first time they are made visible, the game publishes the
+     * opening TurnStarted event.
      *
      * @param b
      *            true to set them visible
      */
     public void setVisible(boolean b)
     {
-        cav.setVisible(b);
-        for (PlayerBoard pb : playerBoards)
+        if (headless)
+            throw new IllegalStateException("A headless game has no windows.");
+        if (window != null)
+        {
+            window.setVisible(b);
+        }
+        else
         {
-            pb.pbv.setVisible(b);
+            cav.setVisible(b);
+            for (PlayerBoard pb : playerBoards)
+            {
+                pb.getView().setVisible(b);
+            }
+        }
+        if (b)
+            start();
+    }
+
+    /**
+     * Marks the game as started and publishes the opening TurnStarted event; does nothing if already started. Called
+     * by setVisible() for interactive games; headless games must call it before the first move.
+     */
+    public void start()
+    {
+        if (!started)
+        {
+            started = true;
+            GameMetrics.gameStarted();
+            publish(new GameEvent.TurnStarted(this, playerBoards[curPlayer].player));
+            beginTurn();
         }
     }
 
@@ -116,10 +229,66 @@ public class Game
      *            the names to use for each player
      */
     public Game(int players, String[] names)
+    {
+        this(players, names, false);
+    }
+
+    /**
+     * Creates a new game with the given number of players, using the given names. A headless game creates no windows
+     * and shows no dialogs, for simulations and bot matches; it is driven entirely through its methods and those of its
+     * PlayerBoards.
+     *
+     * @param players
+     *            the number of players (2-4)
+     * @param names
+     *            the names to use for each player
+     * @param headless
+     *            true to create the game without any views
+     */
+    public Game(int players, String[] names, boolean headless)
+    {
+        this(players, names, headless ? Display.HEADLESS : Display.WINDOWS);
+    }
+
+    /**
+     * Creates a new game with the given number of players, using the given names and presented in the given way
+     *
+     * @param players
+     *            the number of players (2-4)
+     * @param names
+     *            the names to use for each player
+     * @param display
+     *            how the game presents itself
+     */
+    public Game(int players, String[] names, Display display)
+    {
+        this(players, names, display, new Random().nextLong());
+    }
+
+    /**
+     * Creates a new game whose first player and tile draws come from the given seed. Each round's draw depends only on
+     * the seed, the round and what is left in the bag, which play doesn't change until the bag first runs out, so games
+     * with the same seed and player count deal the same tiles whatever moves are played until then. After that, tiles
+     * return from the box lid in a fixed order, so the deals still match whenever the lid holds the same tiles. Bot
+     * matches and tuning use this to play every competitor on the same deals ("duplicate" play).
+     *
+     * @param players
+     *            the number of players (2-4)
+     * @param names
+     *            the names to use for each player
+     * @param display
+     *            how the game presents itself
+     * @param seed
+     *            the seed for the game's randomness
+     */
+    public Game(int players, String[] names, Display display, long seed)
     {
         if (players < 2 || players > 4)
             throw new IllegalArgumentException("Invalid number of players, must be 2-4.");
         numPlayers = players;
+        this.display = display;
+        headless = display == Display.HEADLESS;
+        updateBus = headless ? null : new UpdateBus();
         playerBoards = new PlayerBoard[numPlayers];
         if (names.length < numPlayers)
             throw new IllegalArgumentException("Not enough names given for the number of players");
@@ -143,22 +312,63 @@ public class Game
 
         centerArea = new TileCollection();
 
+        factoryColors = new int[factories.length][Color.values().length];
+        centerColors = new int[Color.values().length];
+        colorsRemaining = new int[Color.values().length];
+
         boxLid = new TileCollection();
+        bagColors = new int[Color.values().length];
+        lidColors = new int[Color.values().length];
+        countTiles(bag, bagColors);
 
         winner = "none";
+        this.seed = seed;
+        random = new Random(seed);
         // Randomize first player
-        curPlayer = (int) (Math.random() * numPlayers);
-        playerBoards[curPlayer].pbv.updateTitle(true);
+        curPlayer = random.nextInt(numPlayers);
 
-        // Create the center area at 3/4 the available height.
-        int size = (int)(GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds().height*.75);
-        cav = new CommonAreaView(this, size);
+        if (!headless)
+        {
+            // Create the center area at 3/4 the available height.
+            int size = (int)(GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds().height*.75);
+            if (display == Display.SINGLE_WINDOW)
+            {
+                cav = new CommonAreaView(this, size, false);
+                window = new GameWindow(this, cav);
+            }
+            else
+            {
+                cav = new CommonAreaView(this, size);
+                for (PlayerBoard pb : playerBoards)
+                {
+                    pb.setView(new PlayerBoardView(pb));
+                }
+            }
+        }
+        postTitle(curPlayer);
 
         observers = new ArrayList<GameObserver>();
+        turnListeners = new ArrayList<TurnListener>();
+        seats = new Player[numPlayers];
+        Arrays.fill(seats, HumanPlayer.INSTANCE);
+        timeLimits = new long[numPlayers];
+        gameThread = headless ? BackgroundExecutor.get() : eventDispatchThread;
+        events = new SubmissionPublisher<GameEvent>(BackgroundExecutor.get(), EVENT_BUFFER_SIZE);
+        droppedEvents = new AtomicLong();
 
         resetCenter();
     }
 
+    /**
+     * Returns the number of players in this game
+     *
+     * @return the number of players in this game
+     */
+    public int getPlayerCount()
+    {
+        return numPlayers;
+    }
+
     /**
      * Returns the number of factories for this game
      *
@@ -178,7 +388,10 @@ public class Game
      */
     public TileCollection getFactoryTiles(int i)
     {
-        return new TileCollection(factories[i]);
+        long mark = AllocationAccounting.begin();
+        TileCollection tc = new TileCollection(factories[i]);
+        AllocationAccounting.end(AllocationAccounting.Phase.FACTORY_TILES_COPY, mark);
+        return tc;
     }
 
     /**
@@ -188,7 +401,120 @@ public class Game
      */
     public TileCollection getCenterTiles()
     {
-        return new TileCollection(centerArea);
+        long mark = AllocationAccounting.begin();
+        TileCollection tc = new TileCollection(centerArea);
+        AllocationAccounting.end(AllocationAccounting.Phase.CENTER_TILES_COPY, mark);
+        return tc;
+    }
+
+    /**
+     * Returns the number of tiles in the specified factory, without copying them
+     *
+     * @param i
+     *            the factory
+     * @return the number of tiles in the specified factory
+     */
+    public int getFactoryTileCount(int i)
+    {
+        return factories[i].size();
+    }
+
+    /**
+     * Returns a single tile from the specified factory, without copying them
+     *
+     * @param i
+     *            the factory
+     * @param pos
+     *            the position of the tile in the factory (0-3)
+     * @return the color of that tile
+     */
+    public Color getFactoryTile(int i, int pos)
+    {
+        return factories[i].get(pos);
+    }
+
+    /**
+     * Returns the number of tiles of the given color in the specified factory, without copying them
+     *
+     * @param i
+     *            the factory
+     * @param c
+     *            the color to count
+     * @return the number of tiles of that color in the factory
+     */
+    public int getFactoryColorCount(int i, Color c)
+    {
+        return factoryColors[i][c.ordinal()];
+    }
+
+    /**
+     * Returns the number of tiles in the center area (including the first player tile), without copying them
+     *
+     * @return the number of tiles in the center area
+     */
+    public int getCenterTileCount()
+    {
+        return centerArea.size();
+    }
+
+    /**
+     * Returns the number of tiles of the given color in the center area, without copying them
+     *
+     * @param c
+     *            the color to count
+     * @return the number of tiles of that color in the center area
+     */
+    public int getCenterColorCount(Color c)
+    {
+        return centerColors[c.ordinal()];
+    }
+
+    /**
+     * Returns the number of tiles of the given color left in the bag, without copying them
+     *
+     * @param c
+     *            the color to count
+     * @return the number of tiles of that color in the bag
+     */
+    public int getBagColorCount(Color c)
+    {
+        return bagColors[c.ordinal()];
+    }
+
+    /**
+     * Returns the number of tiles of the given color in the box lid, waiting to be returned to the bag once it runs
+     * out, without copying them
+     *
+     * @param c
+     *            the color to count
+     * @return the number of tiles of that color in the box lid
+     */
+    public int getBoxLidColorCount(Color c)
+    {
+        return lidColors[c.ordinal()];
+    }
+
+    /**
+     * Returns the number of tiles left to pick this round, across the factories and the center area (including the
+     * first player tile)
+     *
+     * @return the number of tiles left to pick this round
+     */
+    public int getTilesRemaining()
+    {
+        return tilesRemaining;
+    }
+
+    /**
+     * Returns the number of tiles of the given color left to pick this round, across the factories and the center area
+     *
+     * @param c
+     *            the color to count
+     * @return the number of tiles of that color left to pick this round
+     */
+    public int getTilesRemaining(Color c)
+    {
+        return colorsRemaining[c.ordinal()];
     }
 
     /**
@@ -201,6 +527,96 @@ public class Game
         return curPlayer;
     }
 
+    /**
+     * Returns true if it is currently the given player's turn
+     *
+     * @param pb
+     *            the player board to check
+     * @return true if it is currently the given player's turn
+     */
+    boolean isActivePlayer(PlayerBoard pb)
+    {
+        return playerBoards[curPlayer] == pb;
+    }
+
+    /**
+     * Returns true if this game was created without views
+     *
+     * @return true if this game was created without views
+     */
+    public boolean isHeadless()
+    {
+        return headless;
+    }
+
+    /**
+     * Returns how this game presents itself
+     *
+     * @return how this game presents itself
+     */
+    public Display getDisplay()
+    {
+        return display;
+    }
+
+    /**
+     * Returns the board of the given player
+     *
+     * @param i
+     *            the player's seat index
+     * @return the board of the given player
+     */
+    public PlayerBoard getPlayerBoard(int i)
+    {
+        return playerBoards[i];
+    }
+
+    /**
+     * Returns true once the game has been played to completion
+     *
+     * @return true once the game has been played to completion
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Returns the name of the winning player, or "none" if the game has not been played to completion
+     *
+     * @return the name of the winning player, or "none" if the game has not been played to completion
+     */
+    public String getWinner()
+    {
+        return winner;
+    }
+
+    /**
+     * Posts a change to the given view through this game's UpdateBus; does nothing for a headless game
+     *
+     * @param target
+     *            the view that needs updating
+     * @param changes
+     *            the UpdateBus change flags
+     */
+    void postUpdate(UpdateBus.Target target, int changes)
+    {
+        if (target != null)
+            updateBus.post(target, changes);
+    }
+
+    /**
+     * Posts a title change for the given player's board, and for the single window if there is one
+     *
+     * @param player
+     *            the index of the player whose active status changed
+     */
+    private void postTitle(int player)
+    {
+        postUpdate(playerBoards[player].getView(), UpdateBus.TITLE);
+        postUpdate(window, UpdateBus.TITLE);
+    }
+
     /**
      * Selects tiles from the given factory of the given color. The selected tiles are transfered to the current
      * player's selected tiles buffer, and the remainder are transfered to the center area.
@@ -214,13 +630,28 @@ public class Game
     {
         if (c == Color.WHITE)
             throw new IllegalArgumentException("Cannot pick tiles of color WHITE.");
-        if (!factories[factory].contains(c))
+        if (factoryColors[factory][c.ordinal()] == 0)
             throw new IllegalArgumentException("No " + c + " tiles in the chosen factory.");
+        long start = GameMetrics.PICK_FROM_FACTORY.start();
+        long mark = AllocationAccounting.begin();
+        MoveEvent move = new MoveEvent();
+        move.begin();
         TileCollection picked = factories[factory].removeTilesOfColor(c);
+        for (int i = 0; i < factories[factory].size(); ++i)
+        {
+            ++centerColors[factories[factory].get(i).ordinal()];
+        }
         centerArea.addAll(factories[factory]);
         factories[factory].clear();
-        cav.updateTiles();
+        Arrays.fill(factoryColors[factory], 0);
+        colorsRemaining[c.ordinal()] -= picked.size();
+        tilesRemaining -= picked.size();
+        postUpdate(cav, UpdateBus.TILES);
+        publish(new GameEvent.TilesPicked(this, playerBoards[curPlayer].player, factory, c, picked.size(), false));
         playerBoards[curPlayer].setSelectedTiles(picked);
+        commitPick(move, factory, c, picked.size());
+        AllocationAccounting.end(AllocationAccounting.Phase.PICK, mark);
+        GameMetrics.PICK_FROM_FACTORY.stop(start);
     }
 
     /**
@@ -234,12 +665,27 @@ public class Game
     {
         if (c == Color.WHITE)
             throw new IllegalArgumentException("Cannot pick tiles of color WHITE.");
-        if (!centerArea.contains(c))
+        if (centerColors[c.ordinal()] == 0)
             throw new IllegalArgumentException("No " + c + " tiles in the center area.");
+        long start = GameMetrics.PICK_FROM_CENTER.start();
+        long mark = AllocationAccounting.begin();
+        MoveEvent move = new MoveEvent();
+        move.begin();
         TileCollection picked = centerArea.removeTilesOfColor(c);
-        if (centerArea.contains(Color.WHITE))
+        int count = picked.size();
+        if (centerColors[Color.WHITE.ordinal()] > 0)
             picked.addAll(centerArea.removeTilesOfColor(Color.WHITE));
+        centerColors[c.ordinal()] = 0;
+        centerColors[Color.WHITE.ordinal()] = 0;
+        colorsRemaining[c.ordinal()] -= count;
+        colorsRemaining[Color.WHITE.ordinal()] -= picked.size() - count;
+        tilesRemaining -= picked.size();
+        postUpdate(cav, UpdateBus.TILES);
+        publish(new GameEvent.TilesPicked(this, playerBoards[curPlayer].player, -1, c, count, picked.size() > count));
         playerBoards[curPlayer].setSelectedTiles(picked);
+        commitPick(move, -1, c, picked.size());
+        AllocationAccounting.end(AllocationAccounting.Phase.PICK, mark);
+        GameMetrics.PICK_FROM_CENTER.stop(start);
     }
 
     /**
@@ -249,9 +695,10 @@ public class Game
      */
     public void endTurn()
     {
-        playerBoards[curPlayer].pbv.updateTitle(false);
+        postTitle(curPlayer);
         if (roundOver())
         {
+            long start = GameMetrics.END_TURN_ROUND_FINISH.start();
             TileCollection discard;
             for (int i = 0; i < numPlayers; ++i)
             {
@@ -262,10 +709,18 @@ public class Game
                     discard.removeTilesOfColor(Color.WHITE);
                 }
                 boxLid.addAll(discard);
+                for (Color c : discard)
+                {
+                    ++lidColors[c.ordinal()];
+                }
             }
+            publish(new GameEvent.RoundScored(this, getPlayerNames(), getScores()));
+            GameMetrics.END_TURN_ROUND_FINISH.stop(start);
             if (!gameOver())
             {
+                start = GameMetrics.END_TURN_RESET_CENTER.start();
                 resetCenter();
+                GameMetrics.END_TURN_RESET_CENTER.stop(start);
             }
             else
             {
@@ -280,7 +735,16 @@ public class Game
                         winner = pb.player;
                     }
                 }
-                JOptionPane.showMessageDialog(null, winner + " wins!", "Game Over", JOptionPane.INFORMATION_MESSAGE);
+                finished = true;
+                if (!headless)
+                {
+                    // Modal to this game's windows only, so that any other games running stay playable
+                    JDialog dialog = new JOptionPane(winner + " wins!", JOptionPane.INFORMATION_MESSAGE)
+                            .createDialog(cav, "Game Over");
+                    dialog.setModalityType(Dialog.ModalityType.DOCUMENT_MODAL);
+                    dialog.setVisible(true);
+                    dialog.dispose();
+                }
                 dispose();
             }
         }
@@ -288,39 +752,443 @@ public class Game
         {
             curPlayer = (curPlayer + 1) % numPlayers;
         }
-        playerBoards[curPlayer].pbv.updateTitle(true);
+        postTitle(curPlayer);
+        if (!events.isClosed())
+            publish(new GameEvent.TurnStarted(this, playerBoards[curPlayer].player));
+        if (!finished)
+            beginTurn();
+    }
+
+    /**
+     * Plays a whole turn for the current player: picks the move's tiles and places them on its row
+     *
+     * @param m
+     *            the move to play
+     */
+    public void playMove(Move m)
+    {
+        PlayerBoard pb = playerBoards[curPlayer];
+        if (pb.hasSelectedTiles())
+            throw new IllegalStateException("The current player has already picked their tiles.");
+        if (m.row != Move.FLOOR && !pb.canAddTilesToRow(m.row, m.color))
+            throw new IllegalArgumentException("Cannot place " + m.color + " tiles on row " + m.row + ".");
+        if (m.source == Move.CENTER)
+            pickTilesFromCenter(m.color);
+        else
+            pickTilesFromFactory(m.source, m.color);
+        pb.addTilesToRow(m.row);
     }
 
+    /**
+     * Registers an observer to be told (on the event dispatch thread, as the game's windows close) that the game has
+     * ended
+     *
+     * @param o
+     *            the observer
+     */
     public void addObserver(GameObserver o)
     {
         observers.add(o);
     }
 
+    /**
+     * Registers a listener to be told, on the thread playing the game, as each turn starts
+     *
+     * @param l
+     *            the listener
+     */
+    public void addTurnListener(TurnListener l)
+    {
+        turnListeners.add(l);
+    }
+
+    /**
+     * Hands a seat to a player, who will be asked for each of the seat's moves. Must be called before the game starts,
+     * on the thread playing it.
+     *
+     * @param seat
+     *            the seat index
+     * @param p
+     *            the player
+     * @param timeLimitMillis
+     *            the longest the player may take over a move before the fallback move is played for them, in
+     *            milliseconds, or 0 for no limit
+     */
+    public void setPlayer(int seat, Player p, long timeLimitMillis)
+    {
+        seats[seat] = p;
+        timeLimits[seat] = timeLimitMillis;
+    }
+
+    /**
+     * Returns the player choosing a seat's moves
+     *
+     * @param seat
+     *            the seat index
+     * @return the seat's player
+     */
+    public Player getPlayer(int seat)
+    {
+        return seats[seat];
+    }
+
+    /**
+     * Returns true if the given seat is played by something other than clicks in the game's windows, so that clicks
+     * can't pick tiles on its turn
+     *
+     * @param player
+     *            the player's seat index
+     * @return true if the seat is played automatically
+     */
+    public boolean isAutomated(int player)
+    {
+        return !seats[player].isInteractive();
+    }
+
+    /**
+     * Sets the thread the players' moves are played on. A game with windows plays them on the event dispatch thread; a
+     * headless game plays each move as a task on the shared background executor, which is safe because only one move is
+     * ever awaited at a time, and keeps the game off the timer thread that answers searches at their deadlines. Must be
+     * called before the game starts.
+     *
+     * @param e
+     *            runs tasks on the thread playing the game
+     */
+    public void setGameThread(Executor e)
+    {
+        gameThread = e;
+    }
+
+    /**
+     * Returns true if the current player could play the given move
+     *
+     * @param m
+     *            the move
+     * @return true if the move is legal
+     */
+    public boolean isLegal(Move m)
+    {
+        PlayerBoard pb = playerBoards[curPlayer];
+        if (pb.hasSelectedTiles() || m.source < Move.CENTER || m.source >= factories.length)
+            return false;
+        int count = (m.source == Move.CENTER) ? centerColors[m.color.ordinal()]
+                : factoryColors[m.source][m.color.ordinal()];
+        return count > 0 && (m.row == Move.FLOOR || pb.canAddTilesToRow(m.row, m.color));
+    }
+
+    /**
+     * Returns the move played for a player who doesn't choose one in time: the first tiles found, factories before the
+     * center, placed on the first build row that can take them, or the floor line if none can
+     *
+     * @return a legal move for the current player, or null if there are no tiles left to pick
+     */
+    public Move getFallbackMove()
+    {
+        PlayerBoard pb = playerBoards[curPlayer];
+        Move floor = null;
+        for (int i = 0; i <= factories.length; ++i)
+        {
+            int source = (i < factories.length) ? i : Move.CENTER;
+            for (Color c : Color.values())
+            {
+                if (c == Color.WHITE || ((source == Move.CENTER) ? centerColors[c.ordinal()]
+                        : factoryColors[source][c.ordinal()]) == 0)
+                    continue;
+                for (int row = 0; row < 5; ++row)
+                {
+                    if (pb.canAddTilesToRow(row, c))
+                        return new Move(source, c, row);
+                }
+                if (floor == null)
+                    floor = new Move(source, c, Move.FLOOR);
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Subscribes to this game's events. Each subscriber is sent events asynchronously from its own buffer, at the rate
+     * it requests them; if a subscriber falls so far behind that its buffer fills, further events for it are dropped
+     * so that it can never hold up the game.
+     *
+     * @param s
+     *            the subscriber
+     */
+    public void subscribe(Flow.Subscriber<? super GameEvent> s)
+    {
+        events.subscribe(s);
+    }
+
+    /**
+     * Returns the number of events dropped because a subscriber's buffer was full
+     *
+     * @return the number of events dropped because a subscriber's buffer was full
+     */
+    public long getDroppedEventCount()
+    {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Tells every turn listener that the current player's turn has started, then asks the player for their move. The
+     * answer is played on the game's thread when it arrives, or the fallback move once the seat's time limit is up,
+     * whichever comes first; no thread waits for it in the meantime. The limit is counted from before the player is
+     * asked.
+     */
+    private void beginTurn()
+    {
+        for (int i = 0; i < turnListeners.size(); ++i)
+        {
+            turnListeners.get(i).turnStarted(this);
+        }
+
+        final int thisTurn = ++turn;
+        final CompletableFuture<Move> answer = new CompletableFuture<Move>();
+        // Armed before the player is asked, so that the limit holds even for a player that is slow to answer the call
+        if (timeLimits[curPlayer] > 0)
+        {
+            BackgroundExecutor.getScheduler().schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    answer.complete(null);
+                }
+            }, timeLimits[curPlayer], TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<Move> choice;
+        try
+        {
+            choice = seats[curPlayer].chooseMove(this);
+        }
+        catch (RuntimeException e)
+        {
+            choice = CompletableFuture.completedFuture(null);
+        }
+        choice.whenComplete(new BiConsumer<Move, Throwable>()
+        {
+            @Override
+            public void accept(Move m, Throwable t)
+            {
+                // A choice cancelled because the game was closed is not a missed move
+                if (t == null || !disposed)
+                    answer.complete((t == null) ? m : null);
+            }
+        });
+        // Only handed to the game's thread now that the call has returned, so the move is never played while a player
+        // that overran its limit is still reading the game
+        answer.thenAccept(new Consumer<Move>()
+        {
+            @Override
+            public void accept(final Move m)
+            {
+                gameThread.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        playTurn(thisTurn, m);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Plays a player's answer, if the turn it was asked for is still the current one. A missing or illegal move is
+     * replaced by the fallback move; if the player has already picked their tiles, they go on the first build row that
+     * can take them.
+     *
+     * @param forTurn
+     *            the turn the move was asked for
+     * @param m
+     *            the player's move, or null
+     */
+    private void playTurn(int forTurn, Move m)
+    {
+        if (forTurn != turn || finished || disposed)
+            return;
+        PlayerBoard pb = playerBoards[curPlayer];
+        if (pb.hasSelectedTiles())
+        {
+            int row = 0;
+            while (row < Move.FLOOR && !pb.canAddTilesToRow(row))
+            {
+                ++row;
+            }
+            pb.addTilesToRow(row);
+        }
+        else
+        {
+            Move move = (m != null && isLegal(m)) ? m : getFallbackMove();
+            // There is nothing to pick only if the round has already ended
+            if (move != null)
+                playMove(move);
+        }
+    }
+
+    /**
+     * Hands an event to every subscriber's buffer without blocking, dropping it for any subscriber whose buffer is full
+     *
+     * @param e
+     *            the event to publish
+     */
+    void publish(GameEvent e)
+    {
+        events.offer(e, new BiPredicate<Flow.Subscriber<? super GameEvent>, GameEvent>()
+        {
+            @Override
+            public boolean test(Flow.Subscriber<? super GameEvent> subscriber, GameEvent event)
+            {
+                droppedEvents.incrementAndGet();
+                return false; // Don't retry
+            }
+        });
+    }
+
+    /**
+     * Fills in and commits a Flight Recorder event for a pick, if it is being recorded
+     *
+     * @param move
+     *            the event, begun when the pick started
+     * @param source
+     *            the factory picked from, or -1 for the center area
+     * @param c
+     *            the color picked
+     * @param count
+     *            the number of tiles picked (including the first player tile)
+     */
+    private void commitPick(MoveEvent move, int source, Color c, int count)
+    {
+        move.end();
+        if (move.shouldCommit())
+        {
+            move.action = "pick";
+            move.player = playerBoards[curPlayer].player;
+            move.playerCount = numPlayers;
+            move.source = source;
+            move.row = -1;
+            move.color = c.name();
+            move.tilesMoved = count;
+            move.commit();
+        }
+    }
+
+    /**
+     * Returns the player names, in seat order
+     *
+     * @return the player names, in seat order
+     */
+    private String[] getPlayerNames()
+    {
+        String[] names = new String[numPlayers];
+        for (int i = 0; i < numPlayers; ++i)
+        {
+            names[i] = playerBoards[i].player;
+        }
+        return names;
+    }
+
+    /**
+     * Returns each player's current score, in seat order
+     *
+     * @return each player's current score, in seat order
+     */
+    private int[] getScores()
+    {
+        int[] scores = new int[numPlayers];
+        for (int i = 0; i < numPlayers; ++i)
+        {
+            scores[i] = playerBoards[i].getScore();
+        }
+        return scores;
+    }
+
+    /**
+     * Recounts the tiles of each color in a collection
+     *
+     * @param tc
+     *            the tiles
+     * @param counts
+     *            the counts to fill, indexed by color
+     */
+    private static void countTiles(TileCollection tc, int[] counts)
+    {
+        Arrays.fill(counts, 0);
+        for (Color c : tc)
+        {
+            ++counts[c.ordinal()];
+        }
+    }
+
     /**
      * Sets up the common area for the beginning of a round.
      */
     private void resetCenter()
     {
+        long mark = AllocationAccounting.begin();
+        BagRefillEvent refill = new BagRefillEvent();
+        refill.begin();
+        int drawn = 0, filled = 0, returned = 0;
+        random.setSeed(seed + ++round * ROUND_SEED_STEP);
         for (int i = 0; i < factories.length; ++i)
         {
-            factories[i] = bag.drawTiles(4);
+            factories[i] = bag.drawTiles(4, random);
             if (factories[i].size() < 4)
             {
                 if (!boxLid.isEmpty())
                 {
+                    returned += boxLid.size();
+                    // The order tiles reached the lid depends on play; sorting keeps the draw from depending on it
+                    Collections.sort(boxLid);
                     bag.addAll(boxLid);
                     boxLid.clear();
-                    factories[i].addAll(bag.drawTiles(4 - factories[i].size()));
+                    factories[i].addAll(bag.drawTiles(4 - factories[i].size(), random));
                 }
                 else
                 {
                     // No more tiles to draw, remaining factories will be empty.
+                    drawn += factories[i].size();
+                    if (!factories[i].isEmpty())
+                        ++filled;
                     break;
                 }
             }
+            drawn += factories[i].size();
+            ++filled;
         }
         centerArea.add(Color.WHITE);
-        cav.updateTiles();
+
+        // The round is over, so the center area held nothing before the first player tile
+        Arrays.fill(colorsRemaining, 0);
+        Arrays.fill(centerColors, 0);
+        centerColors[Color.WHITE.ordinal()] = 1;
+        colorsRemaining[Color.WHITE.ordinal()] = 1;
+        tilesRemaining = 1;
+        for (int i = 0; i < factories.length; ++i)
+        {
+            Arrays.fill(factoryColors[i], 0);
+            for (int j = 0; j < factories[i].size(); ++j)
+            {
+                ++factoryColors[i][factories[i].get(j).ordinal()];
+                ++colorsRemaining[factories[i].get(j).ordinal()];
+            }
+            tilesRemaining += factories[i].size();
+        }
+        countTiles(bag, bagColors);
+        countTiles(boxLid, lidColors);
+        refill.end();
+        if (refill.shouldCommit())
+        {
+            refill.playerCount = numPlayers;
+            refill.tilesDrawn = drawn;
+            refill.factoriesFilled = filled;
+            refill.lidTilesReturned = returned;
+            refill.bagRemaining = bag.size();
+            refill.commit();
+        }
+        postUpdate(cav, UpdateBus.TILES);
+        AllocationAccounting.end(AllocationAccounting.Phase.FACTORY_FILL, mark);
     }
 
     /**
@@ -330,14 +1198,7 @@ public class Game
      */
     private boolean roundOver()
     {
-        if (!centerArea.isEmpty())
-            return false;
-        for (int i = 0; i < factories.length; ++i)
-        {
-            if (!factories[i].isEmpty())
-                return false;
-        }
-        return true;
+        return tilesRemaining == 0;
     }
 
     /**
@@ -361,15 +1222,36 @@ public class Game
      */
     public void dispose()
     {
-        for (PlayerBoard pb : playerBoards)
+        // Before the observers are told, as bots cancel their searches then
+        disposed = true;
+        if (window != null)
         {
-            ((JFrame) pb.pbv.getTopLevelAncestor()).dispose();
+            // Returns the realized boards to the shared pool
+            window.dispose();
+        }
+        else if (!headless)
+        {
+            for (PlayerBoard pb : playerBoards)
+            {
+                pb.getView().dispose();
+            }
+            cav.dispose();
         }
-        ((JFrame) cav.getTopLevelAncestor()).dispose();
 
         for (GameObserver o : observers)
         {
             o.gameEnd(winner);
         }
+
+        if (!events.isClosed())
+        {
+            if (finished)
+                GameMetrics.gameFinished();
+            else if (started)
+                GameMetrics.gameAbandoned();
+            publish(new GameEvent.GameEnded(this, winner, getScores()));
+            // Subscribers receive onComplete() once they've consumed the remaining events
+            events.close();
+        }
     }
 }
@@ -0,0 +1,181 @@
+package model;
+
+/**
+ * Base class of the typed events a Game publishes to its subscribers (see Game.subscribe()). Events are immutable
+ * snapshots, shared by every subscriber, so they may be kept and read on any thread; arrays are handed out as copies.
+ *
+ * @author jsnhlbr5
+ */
+public abstract class GameEvent
+{
+    /**
+     * The Game that published this event
+     */
+    public final Game game;
+
+    private GameEvent(Game g)
+    {
+        game = g;
+    }
+
+    /**
+     * Published when a player's turn begins
+     *
+     * @author jsnhlbr5
+     */
+    public static final class TurnStarted extends GameEvent
+    {
+        /**
+         * The name of the player whose turn it is
+         */
+        public final String player;
+
+        TurnStarted(Game g, String player)
+        {
+            super(g);
+            this.player = player;
+        }
+    }
+
+    /**
+     * Published when a player picks tiles from a factory or the center area
+     *
+     * @author jsnhlbr5
+     */
+    public static final class TilesPicked extends GameEvent
+    {
+        /**
+         * The name of the player who picked the tiles
+         */
+        public final String player;
+        /**
+         * The index of the factory the tiles were picked from, or -1 for the center area
+         */
+        public final int factory;
+        /**
+         * The color of tiles picked
+         */
+        public final Color color;
+        /**
+         * The number of tiles of that color picked
+         */
+        public final int count;
+        /**
+         * True if the first player (WHITE) tile was picked up along with them
+         */
+        public final boolean tookFirstPlayerTile;
+
+        TilesPicked(Game g, String player, int factory, Color color, int count, boolean tookFirstPlayerTile)
+        {
+            super(g);
+            this.player = player;
+            this.factory = factory;
+            this.color = color;
+            this.count = count;
+            this.tookFirstPlayerTile = tookFirstPlayerTile;
+        }
+    }
+
+    /**
+     * Published when a player places their picked tiles on their board
+     *
+     * @author jsnhlbr5
+     */
+    public static final class TilesPlaced extends GameEvent
+    {
+        /**
+         * The name of the player who placed the tiles
+         */
+        public final String player;
+        /**
+         * The build row the tiles were placed on (0-indexed; 5 for directly on the floor line)
+         */
+        public final int row;
+        /**
+         * The number of tiles that went onto the build row
+         */
+        public final int placed;
+        /**
+         * The number of tiles that went onto the floor line (overflow and the first player tile included)
+         */
+        public final int floored;
+
+        TilesPlaced(Game g, String player, int row, int placed, int floored)
+        {
+            super(g);
+            this.player = player;
+            this.row = row;
+            this.placed = placed;
+            this.floored = floored;
+        }
+    }
+
+    /**
+     * Published after end-of-round tiling and scoring
+     *
+     * @author jsnhlbr5
+     */
+    public static final class RoundScored extends GameEvent
+    {
+        private final String[] players;
+        private final int[] scores;
+
+        RoundScored(Game g, String[] players, int[] scores)
+        {
+            super(g);
+            this.players = players.clone();
+            this.scores = scores.clone();
+        }
+
+        /**
+         * Returns the player names, in seat order
+         *
+         * @return a copy of the player names, in seat order
+         */
+        public String[] getPlayers()
+        {
+            return players.clone();
+        }
+
+        /**
+         * Returns each player's score after the round, in seat order
+         *
+         * @return a copy of the scores, in seat order
+         */
+        public int[] getScores()
+        {
+            return scores.clone();
+        }
+    }
+
+    /**
+     * Published once when a game ends, whether it finished or was quit early; no events follow it
+     *
+     * @author jsnhlbr5
+     */
+    public static final class GameEnded extends GameEvent
+    {
+        /**
+         * The name of the winning player, or "none" if the game was quit before it finished
+         */
+        public final String winner;
+        private final int[] scores;
+
+        GameEnded(Game g, String winner, int[] scores)
+        {
+            super(g);
+            this.winner = winner;
+            this.scores = scores.clone();
+        }
+
+        /**
+         * Returns each player's final score, in seat order
+         *
+         * @return a copy of the scores, in seat order
+         */
+        public int[] getScores()
+        {
+            return scores.clone();
+        }
+    }
+}
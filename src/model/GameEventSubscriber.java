@@ -0,0 +1,104 @@
+package model;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Convenience base class for Game subscribers: requests one event at a time and dispatches each to the matching
+ * method, all of which do nothing by default. A subscriber that falls behind only delays itself; the game drops events
+ * for it once its buffer is full rather than waiting.
+ *
+ * @author jsnhlbr5
+ */
+public abstract class GameEventSubscriber implements Flow.Subscriber<GameEvent>
+{
+    private Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription s)
+    {
+        subscription = s;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(GameEvent e)
+    {
+        if (e instanceof GameEvent.TurnStarted)
+            turnStarted((GameEvent.TurnStarted) e);
+        else if (e instanceof GameEvent.TilesPicked)
+            tilesPicked((GameEvent.TilesPicked) e);
+        else if (e instanceof GameEvent.TilesPlaced)
+            tilesPlaced((GameEvent.TilesPlaced) e);
+        else if (e instanceof GameEvent.RoundScored)
+            roundScored((GameEvent.RoundScored) e);
+        else if (e instanceof GameEvent.GameEnded)
+            gameEnded((GameEvent.GameEnded) e);
+        subscription.request(1);
+    }
+
+    /**
+     * Does nothing; override to handle errors thrown by the event methods (the subscription is cancelled).
+     */
+    @Override
+    public void onError(Throwable t)
+    {
+    }
+
+    /**
+     * Does nothing; called after the GameEnded event has been delivered.
+     */
+    @Override
+    public void onComplete()
+    {
+    }
+
+    /**
+     * Called when a player's turn begins
+     *
+     * @param e
+     *            the event
+     */
+    protected void turnStarted(GameEvent.TurnStarted e)
+    {
+    }
+
+    /**
+     * Called when a player picks tiles
+     *
+     * @param e
+     *            the event
+     */
+    protected void tilesPicked(GameEvent.TilesPicked e)
+    {
+    }
+
+    /**
+     * Called when a player places tiles
+     *
+     * @param e
+     *            the event
+     */
+    protected void tilesPlaced(GameEvent.TilesPlaced e)
+    {
+    }
+
+    /**
+     * Called after end-of-round scoring
+     *
+     * @param e
+     *            the event
+     */
+    protected void roundScored(GameEvent.RoundScored e)
+    {
+    }
+
+    /**
+     * Called when the game ends
+     *
+     * @param e
+     *            the event
+     */
+    protected void gameEnded(GameEvent.GameEnded e)
+    {
+    }
+}
@@ -0,0 +1,40 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A person playing by clicking in the game's windows. Their move is made through the views rather than chosen here, so
+ * the answer to chooseMove() only ever arrives if the seat has a time limit and the game plays the fallback move for
+ * them. Every seat is played this way until the game is given another player for it.
+ *
+ * @author jsnhlbr5
+ */
+public class HumanPlayer implements Player
+{
+    /**
+     * The one instance; a human player has no state of its own
+     */
+    public static final HumanPlayer INSTANCE = new HumanPlayer();
+
+    /**
+     * Use INSTANCE
+     */
+    private HumanPlayer()
+    {
+    }
+
+    /**
+     * Returns a move that never arrives; the player's clicks end the turn instead
+     */
+    @Override
+    public CompletableFuture<Move> chooseMove(Game g)
+    {
+        return new CompletableFuture<Move>();
+    }
+
+    @Override
+    public boolean isInteractive()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package model;
+
+/**
+ * A whole turn: the tiles a player picks and the build row they place them on
+ *
+ * @author jsnhlbr5
+ */
+public final class Move
+{
+    /**
+     * The center area, as a move's source
+     */
+    public static final int CENTER = -1;
+    /**
+     * The floor line, as a move's row
+     */
+    public static final int FLOOR = 5;
+
+    /**
+     * The factory index the tiles are picked from, or CENTER
+     */
+    public final int source;
+    /**
+     * The color of tiles picked
+     */
+    public final Color color;
+    /**
+     * The build row (0-4) the tiles are placed on, or FLOOR
+     */
+    public final int row;
+
+    /**
+     * Creates a new move
+     *
+     * @param source
+     *            the factory index the tiles are picked from, or CENTER
+     * @param color
+     *            the color of tiles picked
+     * @param row
+     *            the build row (0-4) the tiles are placed on, or FLOOR
+     */
+    public Move(int source, Color color, int row)
+    {
+        if (color == Color.WHITE)
+            throw new IllegalArgumentException("Cannot pick tiles of color WHITE.");
+        if (row < 0 || row > FLOOR)
+            throw new IllegalArgumentException("Invalid row " + row + ", must be 0-5.");
+        this.source = source;
+        this.color = color;
+        this.row = row;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof Move))
+            return false;
+        Move m = (Move) o;
+        return m.source == source && m.color == color && m.row == row;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ((source + 1) * 5 + color.ordinal()) * 6 + row;
+    }
+
+    @Override
+    public String toString()
+    {
+        return color + " from " + ((source == CENTER) ? "center" : "factory " + source) + " to "
+                + ((row == FLOOR) ? "floor" : "row " + row);
+    }
+}
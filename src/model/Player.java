@@ -0,0 +1,33 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chooses the moves for one seat of a game: a person clicking in the game's windows, a bot searching in this process or
+ * in another, or a client connected from elsewhere. The game asks for each move as the seat's turn starts, and never
+ * waits for the answer; whenever it arrives, from whatever thread, the move is played on the thread playing the game. A
+ * player that misses the seat's time limit, fails, or answers with an illegal move has a fallback move played for it.
+ *
+ * @author jsnhlbr5
+ */
+public interface Player
+{
+    /**
+     * Asks for the player's move, as their turn starts. Called on the thread playing the game, and must return the
+     * future at once without blocking, leaving any waiting or searching to other threads: the game's state may be read
+     * during the call, but not afterwards. The seat's time limit runs from before the call, so a player that blocks in
+     * it loses the move to the fallback, which is played as soon as the call returns.
+     *
+     * @param g
+     *            the game, whose current player is this one
+     * @return the move, completed when the player has chosen it; completing with null asks for the fallback move
+     */
+    public CompletableFuture<Move> chooseMove(Game g);
+
+    /**
+     * Returns true if the player moves by clicking in the game's windows, rather than through chooseMove()
+     *
+     * @return true if clicks may pick tiles for this player
+     */
+    public boolean isInteractive();
+}
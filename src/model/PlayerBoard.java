@@ -2,7 +2,12 @@ package model;
 
 import java.util.Arrays;
 
+import metrics.AllocationAccounting;
+import metrics.GameMetrics;
+import metrics.MoveEvent;
+import metrics.RoundScoredEvent;
 import view.PlayerBoardView;
+import view.UpdateBus;
 
 /**
  * A representation of a single player's board
@@ -12,23 +17,57 @@ import view.PlayerBoardView;
 public class PlayerBoard
 {
     private boolean[][] wall;
+    // Bit (row * 5 + col) is set when that wall position is tiled; mirrors wall
+    private int wallMask;
+    // Running wall aggregates: tiles per row, column and color, and how many of each are complete
+    private int[] rowTiles, colTiles, colorTiles;
+    private int completeRows, completeCols, completeColors;
     private int score;
     private BuildRow[] buildRows;
     private TileCollection floorLine;
 
     private TileCollection selectedTiles;
+    // The color of selectedTiles, ignoring the first player tile
+    private Color selectedColor;
     private Game game;
-    public final PlayerBoardView pbv;
+    // The view showing this board; null for a headless game, or one whose board has not been shown yet
+    private PlayerBoardView pbv;
     /**
      * The name for this player
      */
     public final String player;
 
+    /**
+     * The end-of-game bonus for each complete row of the wall
+     */
+    public static final int ROW_BONUS = 2;
+    /**
+     * The end-of-game bonus for each complete column of the wall
+     */
+    public static final int COLUMN_BONUS = 7;
+    /**
+     * The end-of-game bonus for each color with all 5 of its tiles on the wall
+     */
+    public static final int COLOR_BONUS = 10;
+
     /**
      * The total penalty for having the given quantity of tiles on your floor line (0 tiles = 0 penalty).
      */
     private static final int[] floorLineScores = { 0, -1, -2, -4, -6, -8, -11, -14 };
 
+    /**
+     * Returns the total penalty for having the given quantity of tiles on the floor line, as the end of each round
+     * scores it
+     *
+     * @param tiles
+     *            the number of tiles on the floor line; any past the 7th add nothing more
+     * @return the penalty, as a negative number of points (0 for no tiles)
+     */
+    public static int getFloorLinePenalty(int tiles)
+    {
+        return floorLineScores[Math.min(tiles, floorLineScores.length - 1)];
+    }
+
     /**
      * Constructs a new player board logical representation connected to the given Game, using the given player index
      *
@@ -42,6 +81,9 @@ public class PlayerBoard
         game = g;
         player = p;
         wall = new boolean[5][5];
+        rowTiles = new int[5];
+        colTiles = new int[5];
+        colorTiles = new int[5];
         score = 0;
         buildRows = new BuildRow[5];
         for (int i = 0; i < 5; ++i)
@@ -49,12 +91,20 @@ public class PlayerBoard
             buildRows[i] = new BuildRow(i);
         }
         floorLine = new TileCollection();
-
-        pbv = new PlayerBoardView(this);
     }
 
     // ---- Get/check state methods ----
 
+    /**
+     * Returns the view currently showing this board
+     *
+     * @return the view currently showing this board, or null if there is none
+     */
+    public PlayerBoardView getView()
+    {
+        return pbv;
+    }
+
     /**
      * Returns a TileCollection representing the tiles currently on the given build row
      *
@@ -64,9 +114,11 @@ public class PlayerBoard
      */
     public TileCollection getBuildRowTiles(int row)
     {
+        long mark = AllocationAccounting.begin();
         TileCollection tc = new TileCollection();
         BuildRow br = buildRows[row];
         tc.addTiles(br.color, br.count);
+        AllocationAccounting.end(AllocationAccounting.Phase.BUILD_ROW_COPY, mark);
         return tc;
     }
 
@@ -77,7 +129,10 @@ public class PlayerBoard
      */
     public TileCollection getFloorLineTiles()
     {
-        return new TileCollection(floorLine);
+        long mark = AllocationAccounting.begin();
+        TileCollection tc = new TileCollection(floorLine);
+        AllocationAccounting.end(AllocationAccounting.Phase.FLOOR_LINE_COPY, mark);
+        return tc;
     }
 
     /**
@@ -87,14 +142,86 @@ public class PlayerBoard
      */
     public boolean[][] getWall()
     {
+        long mark = AllocationAccounting.begin();
         boolean[][] w = new boolean[5][];
         for (int i = 0; i < 5; ++i)
         {
             w[i] = Arrays.copyOf(wall[i], 5);
         }
+        AllocationAccounting.end(AllocationAccounting.Phase.WALL_COPY, mark);
         return w;
     }
 
+    /**
+     * Returns the color of the tiles on the given build row, without copying them
+     *
+     * @param row
+     *            the build row
+     * @return the color of the tiles on the given build row, or null if it is empty
+     */
+    public Color getBuildRowColor(int row)
+    {
+        return buildRows[row].color;
+    }
+
+    /**
+     * Returns the number of tiles on the given build row, without copying them
+     *
+     * @param row
+     *            the build row
+     * @return the number of tiles on the given build row
+     */
+    public int getBuildRowCount(int row)
+    {
+        return buildRows[row].count;
+    }
+
+    /**
+     * Returns the number of tiles on the floor line, without copying them
+     *
+     * @return the number of tiles on the floor line
+     */
+    public int getFloorLineCount()
+    {
+        return floorLine.size();
+    }
+
+    /**
+     * Returns a single tile from the floor line, without copying them
+     *
+     * @param i
+     *            the position on the floor line, in the order the tiles were placed
+     * @return the color of that tile
+     */
+    public Color getFloorLineTile(int i)
+    {
+        return floorLine.get(i);
+    }
+
+    /**
+     * Returns which wall positions have been tiled as a bitmask, without copying the wall
+     *
+     * @return a 25-bit mask where bit (row * 5 + col) is set if that position has been tiled
+     */
+    public int getWallMask()
+    {
+        return wallMask;
+    }
+
+    /**
+     * Returns true if the given wall position has been tiled
+     *
+     * @param row
+     *            the wall row
+     * @param col
+     *            the wall column
+     * @return true if the given wall position has been tiled
+     */
+    public boolean isWallTiled(int row, int col)
+    {
+        return wall[row][col];
+    }
+
     /**
      * Returns this player's current score
      *
@@ -114,7 +241,21 @@ public class PlayerBoard
      */
     public boolean canAddTilesToRow(int row)
     {
-        return buildRows[row].canAddTiles(selectedTiles.getColorIgnoreWhite());
+        return buildRows[row].canAddTiles(selectedColor);
+    }
+
+    /**
+     * Returns true if tiles of the given color could be added to the given build row
+     *
+     * @param row
+     *            the build row
+     * @param c
+     *            the tile color
+     * @return true if tiles of the given color could be added to the given build row
+     */
+    public boolean canAddTilesToRow(int row, Color c)
+    {
+        return buildRows[row].canAddTiles(c);
     }
 
     /**
@@ -124,23 +265,74 @@ public class PlayerBoard
      */
     public boolean hasCompleteRow()
     {
-        boolean complete;
-        for (int row = 0; row < 5; ++row)
-        {
-            complete = true;
-            for (int col = 0; col < 5; ++col)
-            {
-                if (!wall[row][col])
-                {
-                    // This row is not complete, check the next one.
-                    complete = false;
-                    break;
-                }
-            }
-            if (complete)
-                return true;
-        }
-        return false;
+        return completeRows > 0;
+    }
+
+    /**
+     * Returns the end-of-game bonus this player would receive for their wall as it stands now (2 per complete row, 7
+     * per complete column and 10 per complete color)
+     *
+     * @return the end-of-game bonus for the wall as it stands now
+     */
+    public int getEndGameBonus()
+    {
+        return ROW_BONUS * completeRows + COLUMN_BONUS * completeCols + COLOR_BONUS * completeColors;
+    }
+
+    /**
+     * Returns this player's current score plus the end-of-game bonus for their wall as it stands now
+     *
+     * @return the score this player would finish with if the game ended now
+     */
+    public int getProjectedScore()
+    {
+        return score + getEndGameBonus();
+    }
+
+    /**
+     * Returns the number of tiles on the given row of the wall
+     *
+     * @param row
+     *            the wall row
+     * @return the number of tiles on that row
+     */
+    public int getWallRowCount(int row)
+    {
+        return rowTiles[row];
+    }
+
+    /**
+     * Returns the number of tiles on the given column of the wall
+     *
+     * @param col
+     *            the wall column
+     * @return the number of tiles on that column
+     */
+    public int getWallColumnCount(int col)
+    {
+        return colTiles[col];
+    }
+
+    /**
+     * Returns the number of tiles of the given color on the wall
+     *
+     * @param c
+     *            the color (not WHITE)
+     * @return the number of tiles of that color on the wall
+     */
+    public int getWallColorCount(Color c)
+    {
+        return colorTiles[c.ordinal()];
+    }
+
+    /**
+     * Returns true if it is currently this player's turn
+     *
+     * @return true if it is currently this player's turn
+     */
+    public boolean isActivePlayer()
+    {
+        return game.isActivePlayer(this);
     }
 
     /**
@@ -155,6 +347,17 @@ public class PlayerBoard
 
     // ---- Mutator methods ----
 
+    /**
+     * Sets the view that receives this board's updates; the view is responsible for bringing itself up to date
+     *
+     * @param v
+     *            the view now showing this board, or null if none is
+     */
+    public void setView(PlayerBoardView v)
+    {
+        pbv = v;
+    }
+
     /**
      * Sets this player's selected tiles buffer to the given TileCollection
      *
@@ -164,7 +367,8 @@ public class PlayerBoard
     public void setSelectedTiles(TileCollection tc)
     {
         selectedTiles = tc;
-        pbv.updateButtons();
+        selectedColor = (tc == null) ? null : tc.getColorIgnoreWhite();
+        game.postUpdate(pbv, UpdateBus.BUTTONS);
     }
 
     /**
@@ -177,6 +381,23 @@ public class PlayerBoard
     {
         if (selectedTiles == null)
             throw new IllegalStateException("Tiles must be selected before they can be added to a row.");
+        long mark = AllocationAccounting.begin();
+        MoveEvent move = new MoveEvent();
+        move.begin();
+        int total = selectedTiles.size();
+        int floorBefore = floorLine.size();
+        Color color = null;
+        if (move.isEnabled())
+        {
+            for (Color c : selectedTiles)
+            {
+                if (c != Color.WHITE)
+                {
+                    color = c;
+                    break;
+                }
+            }
+        }
         if (row > 4)
         {
             floorLine.addAll(selectedTiles);
@@ -190,27 +411,63 @@ public class PlayerBoard
             floorLine.addAll(buildRows[row].addTiles(selectedTiles));
         }
         selectedTiles = null;
-        pbv.updateButtons();
-        pbv.updateTiles();
+        selectedColor = null;
+        game.postUpdate(pbv, UpdateBus.BUTTONS | UpdateBus.TILES);
+        int floored = floorLine.size() - floorBefore;
+        game.publish(new GameEvent.TilesPlaced(game, player, row, total - floored, floored));
+        move.end();
+        if (move.shouldCommit())
+        {
+            move.action = "place";
+            move.player = player;
+            move.playerCount = game.getPlayerCount();
+            move.source = -1;
+            move.row = row;
+            move.color = (color == null) ? null : color.name();
+            move.tilesMoved = total - floored;
+            move.tilesFloored = floored;
+            move.commit();
+        }
+        AllocationAccounting.end(AllocationAccounting.Phase.PLACE, mark);
         game.endTurn();
     }
 
     /**
      * Invokes tileRow() for each build row and scoreFloor(), collecting the discard tiles into a single collection, and
-     * triggers UI updates
+     * posts UI updates
      *
      * @return a TileCollection representing all of the tiles discarded by this player
      */
     public TileCollection finishRound()
     {
+        long start = GameMetrics.FINISH_ROUND.start();
+        long mark = AllocationAccounting.begin();
+        RoundScoredEvent scored = new RoundScoredEvent();
+        scored.begin();
+        int scoreBefore = score;
+        int rowsTiled = 0;
         TileCollection discard = new TileCollection();
         for (int i = 0; i < 5; ++i)
         {
+            if (buildRows[i].isFull())
+                ++rowsTiled;
             discard.addAll(tileRow(i));
         }
         discard.addAll(scoreFloor());
-        pbv.updateTiles();
-        pbv.updateScore();
+        game.postUpdate(pbv, UpdateBus.TILES | UpdateBus.SCORE);
+        scored.end();
+        if (scored.shouldCommit())
+        {
+            scored.player = player;
+            scored.playerCount = game.getPlayerCount();
+            scored.rowsTiled = rowsTiled;
+            scored.tilesDiscarded = discard.size();
+            scored.scoreBefore = scoreBefore;
+            scored.scoreAfter = score;
+            scored.commit();
+        }
+        AllocationAccounting.end(AllocationAccounting.Phase.ROUND_SCORING, mark);
+        GameMetrics.FINISH_ROUND.stop(start);
         return discard;
     }
 
@@ -224,7 +481,7 @@ public class PlayerBoard
         rowBonus();
         colBonus();
         colorBonus();
-        pbv.updateScore();
+        game.postUpdate(pbv, UpdateBus.SCORE);
         return score;
     }
 
@@ -242,7 +499,7 @@ public class PlayerBoard
         BuildRow br = buildRows[row];
         if (br.isFull())
         {
-            wall[row][br.column()] = true;
+            recordWallTile(row, br.column());
             scoreTile(row, br.column());
             return br.getDiscard();
         }
@@ -311,72 +568,48 @@ public class PlayerBoard
     }
 
     /**
-     * Adds 2 to this player's score for every complete row
+     * Places a tile on the wall and updates the running wall aggregates
+     *
+     * @param row
+     *            the wall row
+     * @param col
+     *            the wall column
+     */
+    private void recordWallTile(int row, int col)
+    {
+        wall[row][col] = true;
+        wallMask |= 1 << (row * 5 + col);
+        if (++rowTiles[row] == 5)
+            ++completeRows;
+        if (++colTiles[col] == 5)
+            ++completeCols;
+        // plus 5 because we want it to always be positive
+        if (++colorTiles[(col - row + 5) % 5] == 5)
+            ++completeColors;
+    }
+
+    /**
+     * Adds ROW_BONUS to this player's score for every complete row
      */
     private void rowBonus()
     {
-        boolean complete;
-        for (int row = 0; row < 5; ++row)
-        {
-            complete = true;
-            for (int col = 0; col < 5; ++col)
-            {
-                if (!wall[row][col])
-                {
-                    // This row is not complete, check the next one.
-                    complete = false;
-                    break;
-                }
-            }
-            if (complete)
-                score += 2;
-        }
+        score += ROW_BONUS * completeRows;
     }
 
     /**
-     * Adds 7 to this player's score for every complete column
+     * Adds COLUMN_BONUS to this player's score for every complete column
      */
     private void colBonus()
     {
-        boolean complete;
-        for (int col = 0; col < 5; ++col)
-        {
-            complete = true;
-            for (int row = 0; row < 5; ++row)
-            {
-                if (!wall[row][col])
-                {
-                    // This column is not complete, check the next one.
-                    complete = false;
-                    break;
-                }
-            }
-            if (complete)
-                score += 7;
-        }
+        score += COLUMN_BONUS * completeCols;
     }
 
     /**
-     * Adds 10 to this player's score for every complete color (all 5 tiles of one color)
+     * Adds COLOR_BONUS to this player's score for every complete color (all 5 tiles of one color)
      */
     private void colorBonus()
     {
-        boolean complete;
-        for (int color = 0; color < 5; ++color)
-        {
-            complete = true;
-            for (int row = 0; row < 5; ++row)
-            {
-                if (!wall[row][(row + color) % 5])
-                {
-                    // This color is not complete, check the next one.
-                    complete = false;
-                    break;
-                }
-            }
-            if (complete)
-                score += 10;
-        }
+        score += COLOR_BONUS * completeColors;
     }
 
     /**
@@ -1,6 +1,8 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Specialization of ArrayList to simulate a collection of tiles
@@ -59,6 +61,23 @@ public class TileCollection extends ArrayList<Color>
      *             if the parameter is negative
      */
     public TileCollection drawTiles(int num)
+    {
+        return drawTiles(num, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Selects the specified number of tiles randomly from this collection, as drawTiles(int) does, using the given
+     * source of randomness; the same source in the same state draws the same tiles from the same collection
+     *
+     * @param num
+     *            the number of tiles to draw
+     * @param rng
+     *            the source of randomness
+     * @return a new TileCollection containing the drawn tiles
+     * @throws IllegalArgumentException
+     *             if the parameter is negative
+     */
+    public TileCollection drawTiles(int num, Random rng)
     {
         if (num < 0)
             throw new IllegalArgumentException("Cannot draw negative tiles.");
@@ -67,7 +86,7 @@ public class TileCollection extends ArrayList<Color>
             num = this.size();
         for (int i = 0; i < num; ++i)
         {
-            drawn.add(this.remove((int) (Math.random() * this.size())));
+            drawn.add(this.remove(rng.nextInt(this.size())));
         }
         return drawn;
     }
@@ -109,9 +128,18 @@ public class TileCollection extends ArrayList<Color>
      */
     public Color getColorIgnoreWhite()
     {
-        TileCollection temp = new TileCollection(this);
-        temp.removeTilesOfColor(Color.WHITE);
-        return temp.getColor();
+        Color c = null;
+        for (int i = 0; i < this.size(); ++i)
+        {
+            Color t = this.get(i);
+            if (t == Color.WHITE)
+                continue;
+            if (c == null)
+                c = t;
+            else if (t != c)
+                return null;
+        }
+        return c;
     }
 
     /**
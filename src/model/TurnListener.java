@@ -0,0 +1,19 @@
+package model;
+
+/**
+ * Told about each turn as it starts, on the thread playing the game (the event dispatch thread for a game with views),
+ * so that it can read the game's state safely. Unlike the events sent to subscribers, these calls hold up the game, so
+ * they must return quickly.
+ *
+ * @author jsnhlbr5
+ */
+public interface TurnListener
+{
+    /**
+     * Notifies the listener that a player's turn has started; the game's current player is the one whose turn it is
+     *
+     * @param g
+     *            the game
+     */
+    public void turnStarted(Game g);
+}
@@ -3,6 +3,7 @@ package view;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 
 import javax.swing.AbstractAction;
@@ -12,9 +13,10 @@ import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
 import javax.swing.SpringLayout;
 
+import metrics.GameMetrics;
+import metrics.ViewRedrawEvent;
 import model.Color;
 import model.Game;
-import model.TileCollection;
 
 /**
  * Visual representation of the collection of tiles in the center of the common area. It resizes itself based on the
@@ -24,13 +26,15 @@ import model.TileCollection;
  */
 public class CenterAreaView extends JLayeredPane
 {
-    private static final int DEFAULT_BASE_SIZE = 60;
+    static final int DEFAULT_BASE_SIZE = 60;
 
     private Game model;
     private FlowLayout layerLayout;
     private JPanel tileLayer, interfaceLayer;
     private float scale;
     private int calculatedTileSize;
+    // The number of tiles of each color shown, indexed by Color ordinal
+    private int[] shown;
 
     /**
      * Constructs a new center area visual representation connected to the given Game
@@ -41,6 +45,7 @@ public class CenterAreaView extends JLayeredPane
     public CenterAreaView(Game model)
     {
         this.model = model;
+        shown = new int[ViewUtils.COLORS.length];
 
         SpringLayout layout = new SpringLayout();
         this.setLayout(layout);
@@ -81,11 +86,12 @@ public class CenterAreaView extends JLayeredPane
      */
     public void updateTiles()
     {
-        // Retrieve and sort tiles
-        TileCollection tc = model.getCenterTiles();
-        tc.sort(null);
+        long start = GameMetrics.CENTER_VIEW_UPDATE.start();
+        ViewRedrawEvent redraw = new ViewRedrawEvent();
+        redraw.begin();
+        int total = model.getCenterTileCount();
         // Calculate appropriate size based on tile count
-        int size = (int) Math.ceil(Math.sqrt(tc.size()));
+        int size = (int) Math.ceil(Math.sqrt(total));
         int pixels = (int) Math.floor(DEFAULT_BASE_SIZE * 1.1 * size * scale) + layerLayout.getHgap();
         this.setPreferredSize(new Dimension(pixels, pixels));
 
@@ -95,22 +101,70 @@ public class CenterAreaView extends JLayeredPane
         for (Component c : interfaceLayer.getComponents())
             interfaceLayer.remove(c);
 
-        // Create new tiles and buttons
-        for (Color tile : tc)
+        // Create new tiles and buttons, grouped by color
+        for (Color tile : ViewUtils.COLORS)
         {
-            JLabel tilePanel = new ImageLabel(ViewUtils.getImageIcon("/img/" + tile.name() + ".png"));
-            tilePanel.setPreferredSize(new Dimension(calculatedTileSize, calculatedTileSize));
-            tileLayer.add(tilePanel);
-            JButton tileButton = new InvisibleButton(new PickTilesAction(tile));
-            // White tiles cannot be selected
-            if (tile == Color.WHITE)
-                tileButton.setEnabled(false);
-            tileButton.setPreferredSize(new Dimension(calculatedTileSize, calculatedTileSize));
-            interfaceLayer.add(tileButton);
+            int count = model.getCenterColorCount(tile);
+            shown[tile.ordinal()] = count;
+            for (int i = 0; i < count; ++i)
+            {
+                JLabel tilePanel = new ImageLabel(ViewUtils.getTileIcon(tile));
+                tilePanel.setPreferredSize(new Dimension(calculatedTileSize, calculatedTileSize));
+                tileLayer.add(tilePanel);
+                JButton tileButton = new InvisibleButton(new PickTilesAction(tile));
+                // White tiles cannot be selected
+                if (tile == Color.WHITE)
+                    tileButton.setEnabled(false);
+                tileButton.setPreferredSize(new Dimension(calculatedTileSize, calculatedTileSize));
+                interfaceLayer.add(tileButton);
+            }
         }
-        // Force parent to re-do layout and visually remove objects that no longer exist
+        // Force parent to re-do layout, then repaint only the area this view covered before and after resizing
+        Rectangle dirty = this.getBounds();
         this.getParent().validate();
-        this.getParent().repaint();
+        dirty.add(this.getBounds());
+        this.getParent().repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+
+        redraw.end();
+        if (redraw.shouldCommit())
+        {
+            redraw.view = "CenterAreaView";
+            redraw.tilesShown = total;
+            redraw.commit();
+        }
+
+        GameMetrics.CENTER_VIEW_UPDATE.stop(start);
+    }
+
+    /**
+     * Returns the number of tiles of the given color shown
+     *
+     * @param c
+     *            the tile color
+     * @return the number of tiles of that color shown
+     */
+    int getShownCount(Color c)
+    {
+        return shown[c.ordinal()];
+    }
+
+    /**
+     * Returns the label of a tile shown; tiles are grouped by color
+     *
+     * @param c
+     *            the tile color
+     * @param k
+     *            which tile of that color (0 is the first)
+     * @return the label of that tile
+     */
+    ImageLabel getTileLabel(Color c, int k)
+    {
+        int index = k;
+        for (int i = 0; i < c.ordinal(); ++i)
+        {
+            index += shown[i];
+        }
+        return (ImageLabel) tileLayer.getComponent(index);
     }
 
     private class PickTilesAction extends AbstractAction
@@ -125,8 +179,9 @@ public class CenterAreaView extends JLayeredPane
         @Override
         public void actionPerformed(ActionEvent e)
         {
-            model.pickTilesFromCenter(color);
-            updateTiles();
+            // A bot's tiles are picked by the bot
+            if (!model.isAutomated(model.getCurPlayer()))
+                model.pickTilesFromCenter(color);
         }
 
     }
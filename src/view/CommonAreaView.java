@@ -1,11 +1,16 @@
 package view;
 
 import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.Toolkit;
+import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
 
 import javax.swing.AbstractAction;
 import javax.swing.JOptionPane;
@@ -15,33 +20,53 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JPanel;
 import javax.swing.SpringLayout;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.WindowConstants;
 
+import bot.HintProvider;
+import bot.Position;
+import model.Color;
+import model.DrawProbabilities;
 import model.Game;
+import model.Move;
 
 /**
  * Framework which holds and connects the visual representations of the factories and center pile
  *
  * @author jsnhlbr5
  */
-public class CommonAreaView extends JPanel
+public class CommonAreaView extends JPanel implements UpdateBus.Target
 {
     private Game model;
     private SpringLayout layout;
     private CenterAreaView center;
     private FactoryView[] factories;
+    // What was shown before the current update, kept for animating the tiles that moved
+    private Color[][] factoriesBefore;
+    private int[] centerBefore, centerMoved;
+    // This view's own window; null if it is embedded in another one
     private final JFrame frame;
+    /**
+     * Snapshot of this view taken when a resize drag starts; while non-null it is drawn scaled in place of the real
+     * components, and layout is suspended
+     */
+    private BufferedImage interimSnapshot;
 
-    private static final int DEFAULT_SIZE = 1040;
-    private static final float FACTORY_SIZE = 240 / 1040f;
-    // pre-calculated positions for factories (as percent of parent)
+    static final int DEFAULT_SIZE = 1040;
+    // Resize drags are applied at most once per frame (~60 fps)...
+    private static final int RESIZE_FRAME_DELAY = 16;
+    // ...and the full-quality relayout happens once the size has been still for this long (ms)
+    private static final int RESIZE_SETTLE_DELAY = 150;
+    static final float FACTORY_SIZE = 240 / 1040f;
+    // pre-calculated positions for factories (as percent of parent, also used by ThumbnailRenderer)
     // @formatter:off (these look better manually formatted)
-    private static final float[] fx5 = { 400/1040f, 780/1040f, 635/1040f, 165/1040f,  20/1040f };
-    private static final float[] fy5 = {   0/1040f, 276/1040f, 724/1040f, 724/1040f, 276/1040f };
-    private static final float[] fx7 = { 400/1040f, 713/1040f, 790/1040f, 574/1040f, 226/1040f,  10/1040f,  87/1040f };
-    private static final float[] fy7 = {   0/1040f, 151/1040f, 489/1040f, 760/1040f, 760/1040f, 489/1040f, 151/1040f };
-    private static final float[] fx9 = { 400/1040f, 657/1040f, 794/1040f, 746/1040f, 537/1040f, 263/1040f,  54/1040f,   6/1040f, 143/1040f };
-    private static final float[] fy9 = {   0/1040f,  94/1040f, 331/1040f, 600/1040f, 776/1040f, 776/1040f, 600/1040f, 331/1040f,  94/1040f };
+    static final float[] fx5 = { 400/1040f, 780/1040f, 635/1040f, 165/1040f,  20/1040f };
+    static final float[] fy5 = {   0/1040f, 276/1040f, 724/1040f, 724/1040f, 276/1040f };
+    static final float[] fx7 = { 400/1040f, 713/1040f, 790/1040f, 574/1040f, 226/1040f,  10/1040f,  87/1040f };
+    static final float[] fy7 = {   0/1040f, 151/1040f, 489/1040f, 760/1040f, 760/1040f, 489/1040f, 151/1040f };
+    static final float[] fx9 = { 400/1040f, 657/1040f, 794/1040f, 746/1040f, 537/1040f, 263/1040f,  54/1040f,   6/1040f, 143/1040f };
+    static final float[] fy9 = {   0/1040f,  94/1040f, 331/1040f, 600/1040f, 776/1040f, 776/1040f, 600/1040f, 331/1040f,  94/1040f };
     // @formatter:on
 
     /**
@@ -64,6 +89,22 @@ public class CommonAreaView extends JPanel
      *            the initial size of the common area view (in pixels)
      */
     public CommonAreaView(Game m, int size)
+    {
+        this(m, size, true);
+    }
+
+    /**
+     * Constructs a new common area visual representation connected to the given Game with the given size (in pixels),
+     * optionally in its own window
+     *
+     * @param m
+     *            the Game to use as a logical model
+     * @param size
+     *            the initial size of the common area view (in pixels)
+     * @param ownWindow
+     *            true to create a window for this view, false if it will be added to another container
+     */
+    public CommonAreaView(Game m, int size, boolean ownWindow)
     {
         model = m;
 
@@ -119,26 +160,135 @@ public class CommonAreaView extends JPanel
                 break;
         }
 
+        factoriesBefore = new Color[factories.length][4];
+        centerBefore = new int[ViewUtils.COLORS.length];
+        centerMoved = new int[ViewUtils.COLORS.length];
+
+        if (!ownWindow)
+        {
+            frame = null;
+            return;
+        }
         frame = new JFrame("Common Center Area");
         frame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
         frame.add(this);
+        frame.setJMenuBar(createMenuBar());
+        frame.pack();
+        frame.setResizable(false);
+        frame.setIconImage(ViewUtils.getImageIcon("/img/TEAL.png").getImage());
+    }
+
+    /**
+     * Creates the game menu for the window holding this view
+     *
+     * @return a menu bar holding the game menu
+     */
+    JMenuBar createMenuBar()
+    {
         JMenuBar mb = new JMenuBar();
         JMenu menu = new JMenu("Game Menu");
+        menu.add(new HintAction());
         menu.add(new QuitAction());
         mb.add(menu);
-        frame.setJMenuBar(mb);
-        frame.pack();
-        frame.setResizable(false);
-        frame.setIconImage(Toolkit.getDefaultToolkit().getImage(ViewUtils.class.getResource("/img/TEAL.png")));
+        return mb;
     }
 
     /**
-     * Overrides setVisible() to trigger on the parent frame instead.
+     * Overrides setVisible() to trigger on the parent frame instead, if this view has one.
      */
     @Override
     public void setVisible(boolean b)
     {
-        frame.setVisible(b);
+        if (frame == null)
+            super.setVisible(b);
+        else
+            frame.setVisible(b);
+    }
+
+    /**
+     * Closes this view's window, if it has one.
+     */
+    public void dispose()
+    {
+        if (frame != null)
+            frame.dispose();
+    }
+
+    /**
+     * Draws the scaled resize snapshot during a resize drag, otherwise paints normally.
+     */
+    @Override
+    public void paint(Graphics g)
+    {
+        if (interimSnapshot == null)
+        {
+            super.paint(g);
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2.drawImage(interimSnapshot, 0, 0, getWidth(), getHeight(), null);
+    }
+
+    /**
+     * Skips laying out the factories and center area during a resize drag; they are laid out once the size settles.
+     */
+    @Override
+    public void doLayout()
+    {
+        if (interimSnapshot == null)
+            super.doLayout();
+    }
+
+    /**
+     * Refreshes the factories and center area when their tiles have changed, animating the tiles pushed from a factory
+     * into the center.
+     */
+    @Override
+    public void applyUpdates(int changes)
+    {
+        if ((changes & UpdateBus.TILES) == 0)
+            return;
+        TileAnimator animator = TileAnimator.forComponent(this);
+        if (animator == null || interimSnapshot != null)
+        {
+            updateTiles();
+            return;
+        }
+
+        for (int f = 0; f < factories.length; ++f)
+        {
+            for (int i = 0; i < 4; ++i)
+            {
+                factoriesBefore[f][i] = factories[f].getShownTile(i);
+            }
+        }
+        for (Color c : ViewUtils.COLORS)
+        {
+            centerBefore[c.ordinal()] = center.getShownCount(c);
+            centerMoved[c.ordinal()] = 0;
+        }
+
+        updateTiles();
+
+        // Each tile that left a factory goes to the next new center tile of its color, if there is one; the rest went
+        // to the player
+        for (int f = 0; f < factories.length; ++f)
+        {
+            for (int i = 0; i < 4; ++i)
+            {
+                Color c = factoriesBefore[f][i];
+                if (c == null || factories[f].getShownTile(i) != null)
+                    continue;
+                int next = centerBefore[c.ordinal()] + centerMoved[c.ordinal()];
+                if (next >= center.getShownCount(c))
+                    continue;
+                ++centerMoved[c.ordinal()];
+                ImageLabel from = factories[f].getTileLabel(i);
+                animator.move(ViewUtils.getTileIcon(c).getImage(), factories[f], from.getX(), from.getY(),
+                        from.getWidth(), center.getTileLabel(c, next));
+            }
+        }
     }
 
     /**
@@ -167,8 +317,8 @@ public class CommonAreaView extends JPanel
         @Override
         public void actionPerformed(ActionEvent e)
         {
-            int really = JOptionPane.showConfirmDialog(frame, "Are you sure you want to exit?", "Exit Game",
-                    JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+            int really = JOptionPane.showConfirmDialog(CommonAreaView.this, "Are you sure you want to exit?",
+                    "Exit Game", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
             if (really == JOptionPane.YES_OPTION)
                 model.dispose();
         }
@@ -176,51 +326,164 @@ public class CommonAreaView extends JPanel
     }
 
     /**
-     * Custom resize handler to resize the common area view, but only to square sizes
+     * Suggests a move to the player whose turn it is, from a search in the background. The hint is shown once the
+     * search is done, unless the turn has moved on by then; hints are only given at the start of a human player's turn.
+     *
+     * @author jsnhlbr5
+     */
+    private class HintAction extends AbstractAction
+    {
+        public HintAction()
+        {
+            super("Show Hint");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e)
+        {
+            int player = model.getCurPlayer();
+            if (model.isFinished() || !model.getPlayer(player).isInteractive()
+                    || model.getPlayerBoard(player).hasSelectedTiles())
+                return;
+            final Position asked = new Position(model);
+            HintProvider.getHint(asked).thenAccept(new Consumer<Move>()
+            {
+                @Override
+                public void accept(final Move m)
+                {
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            if (!model.isFinished() && new Position(model).equals(asked))
+                                showHint(m);
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * Shows a suggested move to the player whose turn it is, with the odds of finding more tiles of its color when
+         * the factories are next refilled
+         *
+         * @param m
+         *            the move
+         */
+        private void showHint(Move m)
+        {
+            String color = m.color.toString().toLowerCase();
+            String source = (m.source == Move.CENTER) ? "the center"
+                    : "factory " + (m.source + 1) + " (counting clockwise from the top)";
+            String row = (m.row == Move.FLOOR) ? "on the floor line" : "on row " + (m.row + 1);
+            DrawProbabilities next = DrawProbabilities.of(model);
+            String outlook = String.format("Next round, the factories should show about %.1f %s tiles, with a %.0f%%"
+                    + " chance of 3 or more in one factory.", next.getExpectedTotal(m.color), color,
+                    100 * next.getChanceOfFactoryWith(m.color, 3));
+            JOptionPane.showMessageDialog(CommonAreaView.this,
+                    "Take the " + color + " tiles from " + source + " and place them " + row + ".\n" + outlook,
+                    "Hint for " + model.getPlayerBoard(model.getCurPlayer()).player, JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    /**
+     * Custom resize handler to resize the common area view, but only to square sizes. Drag events are coalesced to one
+     * window resize per frame, showing a scaled snapshot of the view; the factories and center area are only laid out
+     * and rebuilt at the new scale once the drag ends or pauses.
      *
      * @author jsnhlbr5
      */
     private class ResizeListener extends MouseAdapter
     {
-        int heightDiff;
-        Point winPos;
+        Point viewPos;
+        int pendingSize;
+        Timer frameTimer, settleTimer;
 
         public ResizeListener()
         {
             super();
+            frameTimer = new Timer(RESIZE_FRAME_DELAY, new ActionListener()
+            {
+                @Override
+                public void actionPerformed(ActionEvent e)
+                {
+                    applyInterimSize();
+                }
+            });
+            frameTimer.setRepeats(false);
+            settleTimer = new Timer(RESIZE_SETTLE_DELAY, new ActionListener()
+            {
+                @Override
+                public void actionPerformed(ActionEvent e)
+                {
+                    applyFinalSize();
+                }
+            });
+            settleTimer.setRepeats(false);
         }
 
         @Override
         public void mousePressed(MouseEvent e)
         {
-            // Frame is not square, record the difference
-            heightDiff = frame.getHeight() - frame.getWidth();
-            // Record window top-left corner (won't move during resize)
-            winPos = frame.getLocationOnScreen();
+            // Record this view's top-left corner (won't move during resize)
+            viewPos = getLocationOnScreen();
+            pendingSize = getWidth();
         }
 
         @Override
         public void mouseDragged(MouseEvent e)
         {
-            resizeFromEvent(e);
+            pendingSize = sizeFromEvent(e);
+            if (!frameTimer.isRunning())
+                frameTimer.start();
+            settleTimer.restart();
         }
 
         @Override
         public void mouseReleased(MouseEvent e)
         {
-            resizeFromEvent(e);
+            pendingSize = sizeFromEvent(e);
+            frameTimer.stop();
+            settleTimer.stop();
+            applyFinalSize();
         }
 
-        private void resizeFromEvent(MouseEvent e)
+        private int sizeFromEvent(MouseEvent e)
         {
-            // Distance from top-left corner to mouse, plus 10px so the mouse is actually on the window
-            int sizeX = e.getXOnScreen() - winPos.x + 10;
-            // Subtract the X/Y dimension difference, since we set an internal square size
-            int sizeY = e.getYOnScreen() - winPos.y + 10 - heightDiff;
+            // Distance from top-left corner to mouse, plus 10px so the mouse stays on the resize handle
+            int sizeX = e.getXOnScreen() - viewPos.x + 10;
+            int sizeY = e.getYOnScreen() - viewPos.y + 10;
             // Get the smaller size, but not less than 300px
-            int size = Math.max(Math.min(sizeX, sizeY), 300);
-            setPreferredSize(new Dimension(size, size));
-            frame.pack();
+            return Math.max(Math.min(sizeX, sizeY), 300);
+        }
+
+        /**
+         * Resizes the window only, showing a scaled snapshot of the view at its last full-quality size
+         */
+        private void applyInterimSize()
+        {
+            if (interimSnapshot == null)
+            {
+                interimSnapshot = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+                Graphics g = interimSnapshot.getGraphics();
+                paint(g);
+                g.dispose();
+            }
+            setPreferredSize(new Dimension(pendingSize, pendingSize));
+            SwingUtilities.getWindowAncestor(CommonAreaView.this).pack();
+        }
+
+        /**
+         * Resizes the window and lays out and rescales the real components
+         */
+        private void applyFinalSize()
+        {
+            interimSnapshot = null;
+            setPreferredSize(new Dimension(pendingSize, pendingSize));
+            // The snapshot suspended layout, so make sure it is redone even if the size didn't change
+            revalidate();
+            SwingUtilities.getWindowAncestor(CommonAreaView.this).pack();
 
             // Propagate any scaling from default to the center area view.
             center.updateScale(getWidth() / (float) DEFAULT_SIZE);
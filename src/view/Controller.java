@@ -2,11 +2,15 @@ package view;
 
 import java.awt.Dimension;
 import java.awt.GridLayout;
-import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -19,10 +23,16 @@ import javax.swing.WindowConstants;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import bot.BackgroundBot;
+import bot.ExternalBot;
+import bot.ExternalBotPool;
+import metrics.EdtWatchdog;
+import model.BackgroundExecutor;
 import model.Game;
 
 /**
- * A persistent controller to make it easier to launch sequential games. Also allows for customization of player names.
+ * A persistent controller to make it easier to launch games. Any number of games may run at once; they share the image
+ * cache and background executor. Also allows for customization of player names.
  *
  * @author jsnhlbr5
  *
@@ -37,6 +47,11 @@ public class Controller extends JFrame implements GameObserver
      */
     public static void main(String[] args)
     {
+        // Decode the images while the look and feel is set up, rather than on the EDT while building windows
+        ViewUtils.preloadImages();
+        // Log any event dispatch thread stalls, with stack traces of where they happened
+        EdtWatchdog.install();
+
         try
         {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -57,9 +72,18 @@ public class Controller extends JFrame implements GameObserver
 
     private JSpinner numPlayers;
     private JTextField[] playerNames;
+    private JCheckBox singleWindow;
+    private JCheckBox botOpponent;
     private JButton playButton;
+    // Only touched on the event dispatch thread
+    private int runningGames;
 
+    private static final Logger log = Logger.getLogger(Controller.class.getName());
     private static final String[] defaultNames = { "Player 1", "Player 2", "Player 3", "Player 4" };
+    // The bot program to play the last seat with (from azul.botCommand), if not the built-in bot
+    private static final String botCommand = System.getProperty("azul.botCommand");
+    // Created on the event dispatch thread when first needed
+    private ExternalBotPool botPool;
 
     /**
      * Constructs the Controller UI
@@ -67,9 +91,9 @@ public class Controller extends JFrame implements GameObserver
     public Controller()
     {
         super("Azul Controller");
-        setIconImage(Toolkit.getDefaultToolkit().getImage(ViewUtils.class.getResource("/img/TEAL.png")));
+        setIconImage(ViewUtils.getImageIcon("/img/TEAL.png").getImage());
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        this.setLayout(new GridLayout(6, 1, 2, 2));
+        this.setLayout(new GridLayout(8, 1, 2, 2));
 
         JPanel players = new JPanel();
         players.setLayout(new GridLayout(1, 2));
@@ -87,7 +111,12 @@ public class Controller extends JFrame implements GameObserver
         }
         numPlayers.getChangeListeners()[0].stateChanged(null);
 
-        playButton = new JButton(new PlayAction(this));
+        singleWindow = new JCheckBox("Single window");
+        this.add(singleWindow);
+        botOpponent = new JCheckBox("Computer plays the last seat");
+        this.add(botOpponent);
+
+        playButton = new JButton(new PlayAction());
         this.add(playButton);
 
         // Mainly for the width, so that the title is always visible.
@@ -99,44 +128,62 @@ public class Controller extends JFrame implements GameObserver
     }
 
     /**
-     * Re-enables the Controller UI (disabled while a game is active). NYI: record win/loss for each player.
+     * Updates the count of running games. NYI: record win/loss for each player.
      */
     @Override
     public void gameEnd(String winner)
     {
         // TODO record winner
-        enableUI();
-        this.requestFocus();
+        --runningGames;
+        updateTitle();
     }
 
     /**
-     * Disables the entire Controller UI (called when starting a game)
+     * Shows the number of running games in the title bar
      */
-    private void disableUI()
+    private void updateTitle()
     {
-        numPlayers.setEnabled(false);
-        for (int i = 0; i < 4; ++i)
-        {
-            playerNames[i].setEnabled(false);
-        }
-        playButton.setEnabled(false);
-        this.setEnabled(false);
+        if (runningGames == 0)
+            setTitle("Azul Controller");
+        else
+            setTitle("Azul Controller (" + runningGames + (runningGames == 1 ? " game" : " games") + " running)");
     }
 
     /**
-     * Enables the Controller UI, as appropriate; player name fields beyond the player count setting will remain
-     * disabled.
+     * Starts a game and shows its windows
+     *
+     * @param count
+     *            the number of players
+     * @param names
+     *            the players' names
+     * @param display
+     *            how the game's windows are laid out
+     * @param bot
+     *            true if a bot plays the last seat
+     * @param external
+     *            the external bot to play it, taken from the pool; null for the built-in bot
      */
-    private void enableUI()
+    private void startGame(int count, String[] names, Game.Display display, boolean bot, final ExternalBot external)
     {
-        this.setEnabled(true);
-        numPlayers.setEnabled(true);
-        int count = (Integer) numPlayers.getValue();
-        for (int i = 0; i < count; ++i)
+        Game g = new Game(count, names, display);
+        g.addObserver(this);
+        if (external != null)
         {
-            playerNames[i].setEnabled(true);
+            new BackgroundBot(g, count - 1, external, BackgroundBot.DEFAULT_THINK_TIME);
+            g.addObserver(new GameObserver()
+            {
+                @Override
+                public void gameEnd(String winner)
+                {
+                    botPool.release(external);
+                }
+            });
         }
-        playButton.setEnabled(true);
+        else if (bot)
+            new BackgroundBot(g, count - 1);
+        g.setVisible(true);
+        ++runningGames;
+        updateTitle();
     }
 
     /**
@@ -147,18 +194,12 @@ public class Controller extends JFrame implements GameObserver
      */
     private class PlayAction extends AbstractAction
     {
-        private GameObserver observer;
-
         /**
          * Instantiates this action
-         *
-         * @param o
-         *            the Controller
          */
-        public PlayAction(GameObserver o)
+        public PlayAction()
         {
             super("Play");
-            observer = o;
         }
 
         /**
@@ -167,9 +208,8 @@ public class Controller extends JFrame implements GameObserver
         @Override
         public void actionPerformed(ActionEvent e)
         {
-            disableUI();
-            int count = (Integer) numPlayers.getValue();
-            String[] names = new String[count];
+            final int count = (Integer) numPlayers.getValue();
+            final String[] names = new String[count];
             for (int i = 0; i < count; ++i)
             {
                 // Replace blank names with defaults
@@ -178,9 +218,45 @@ public class Controller extends JFrame implements GameObserver
                 names[i] = playerNames[i].getText();
             }
 
-            Game g = new Game(count, names);
-            g.addObserver(observer);
-            g.setVisible(true);
+            final Game.Display display = singleWindow.isSelected() ? Game.Display.SINGLE_WINDOW
+                    : Game.Display.WINDOWS;
+            if (!botOpponent.isSelected() || botCommand == null)
+            {
+                startGame(count, names, display, botOpponent.isSelected(), null);
+                return;
+            }
+
+            // Starting a bot's process waits for its handshake, so the seat's bot is taken from the pool in the
+            // background; the built-in bot plays instead if the program can't be started in time
+            if (botPool == null)
+                botPool = new ExternalBotPool(Arrays.asList(botCommand.trim().split("\\s+")));
+            final ExternalBotPool pool = botPool;
+            BackgroundExecutor.get().execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    ExternalBot bot = null;
+                    try
+                    {
+                        bot = pool.acquire();
+                    }
+                    catch (IOException e)
+                    {
+                        log.log(Level.WARNING, "Bot " + botCommand + " could not be started; the built-in bot plays"
+                                + " instead", e);
+                    }
+                    final ExternalBot external = bot;
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            startGame(count, names, display, true, external);
+                        }
+                    });
+                }
+            });
         }
     }
 
@@ -1,17 +1,16 @@
 package view;
 
-import java.awt.Component;
 import java.awt.event.ActionEvent;
 
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
-import javax.swing.JLabel;
 import javax.swing.JLayeredPane;
 import javax.swing.SpringLayout;
 
+import metrics.GameMetrics;
+import metrics.ViewRedrawEvent;
 import model.Color;
 import model.Game;
-import model.TileCollection;
 
 /**
  * Visual representation of a single factory (or "coaster")
@@ -22,15 +21,18 @@ public class FactoryView extends JLayeredPane
 {
     // Percentage-based size/position constants based on factory and tile image sizes, which reflect IRL relative sizes
     // 60/240
-    private static final float TILE_SIZE = 0.25f;
+    static final float TILE_SIZE = 0.25f;
     // 57/240 (60-3 distance from edge if touching middle - half gap)
-    private static final float FIRST_POSITION = 0.2375f;
+    static final float FIRST_POSITION = 0.2375f;
     // 123/240 (120+3 half + half gap)
-    private static final float SECOND_POSITION = 0.5125f;
+    static final float SECOND_POSITION = 0.5125f;
 
     private Game model;
     private int index;
     private JButton[] buttons;
+    private ImageLabel[] tiles;
+    // The color shown at each tile position, or null where no tile is shown
+    private Color[] shown;
 
     /**
      * Creates a new factory view tied to the given game representing the factory of the given index.
@@ -52,6 +54,8 @@ public class FactoryView extends JLayeredPane
         this.add(background, DEFAULT_LAYER);
 
         buttons = new JButton[4];
+        tiles = new ImageLabel[4];
+        shown = new Color[4];
         for (int i = 0; i < 4; ++i)
         {
             buttons[i] = new InvisibleButton(new PickTilesAction(index, null));
@@ -61,34 +65,80 @@ public class FactoryView extends JLayeredPane
             float y = (i < 2) ? FIRST_POSITION : SECOND_POSITION;
             ViewUtils.setPercentage(this, buttons[i], x, y, TILE_SIZE, TILE_SIZE);
             this.add(buttons[i], ViewUtils.INTERFACE_LAYER);
+            // Placeholder image; tiles are shown as needed by updateTiles()
+            tiles[i] = new ImageLabel(ViewUtils.getImageIcon("/img/ERROR.png"));
+            tiles[i].setVisible(false);
+            ViewUtils.setPercentage(this, tiles[i], x, y, TILE_SIZE, TILE_SIZE);
+            this.add(tiles[i], ViewUtils.TILE_LAYER);
         }
 
         updateTiles();
     }
 
     /**
-     * Removes old tiles (if any) and creates new ones; updates buttons to match.
+     * Updates tiles and buttons to match the logical model. Only the tile positions that actually changed are
+     * repainted.
      */
     public void updateTiles()
     {
-        // Remove old tiles and disable buttons
-        for (Component c : getComponentsInLayer(ViewUtils.TILE_LAYER))
-            this.remove(c);
+        long start = GameMetrics.FACTORY_VIEW_UPDATE.start();
+        ViewRedrawEvent redraw = new ViewRedrawEvent();
+        redraw.begin();
+        int count = model.getFactoryTileCount(index);
         for (int i = 0; i < 4; ++i)
-            buttons[i].setEnabled(false);
+        {
+            if (i < count)
+            {
+                Color c = model.getFactoryTile(index, i);
+                shown[i] = c;
+                tiles[i].setImage(ViewUtils.getTileIcon(c));
+                if (!tiles[i].isVisible())
+                    tiles[i].setVisible(true);
+                ((PickTilesAction) buttons[i].getAction()).setColor(c);
+                buttons[i].setEnabled(true);
+            }
+            else
+            {
+                shown[i] = null;
+                if (tiles[i].isVisible())
+                    tiles[i].setVisible(false);
+                buttons[i].setEnabled(false);
+            }
+        }
 
-        // Get new tiles and enable buttons (as appropriate)
-        TileCollection tc = model.getFactoryTiles(index);
-        for (int i = 0; i < tc.size(); ++i)
+        redraw.end();
+        if (redraw.shouldCommit())
         {
-            JLabel tilePanel = new ImageLabel(ViewUtils.getImageIcon("/img/" + tc.get(i).name() + ".png"));
-            float x = (i % 2 == 0) ? FIRST_POSITION : SECOND_POSITION;
-            float y = (i < 2) ? FIRST_POSITION : SECOND_POSITION;
-            ViewUtils.setPercentage(this, tilePanel, x, y, TILE_SIZE, TILE_SIZE);
-            this.add(tilePanel, ViewUtils.TILE_LAYER);
-            ((PickTilesAction) buttons[i].getAction()).setColor(tc.get(i));
-            buttons[i].setEnabled(true);
+            redraw.view = "FactoryView";
+            redraw.tilesShown = count;
+            redraw.commit();
         }
+
+        GameMetrics.FACTORY_VIEW_UPDATE.stop(start);
+    }
+
+    /**
+     * Returns the color of the tile shown at the given position
+     *
+     * @param i
+     *            the tile position (0-3)
+     * @return the color of the tile shown there, or null if there is none
+     */
+    Color getShownTile(int i)
+    {
+        return shown[i];
+    }
+
+    /**
+     * Returns the label for the given tile position
+     *
+     * @param i
+     *            the tile position (0-3)
+     * @return the label for that position
+     */
+    ImageLabel getTileLabel(int i)
+    {
+        return tiles[i];
     }
 
     private class PickTilesAction extends AbstractAction
@@ -110,8 +160,9 @@ public class FactoryView extends JLayeredPane
         @Override
         public void actionPerformed(ActionEvent e)
         {
-            model.pickTilesFromFactory(factory, color);
-            updateTiles();
+            // A bot's tiles are picked by the bot
+            if (!model.isAutomated(model.getCurPlayer()))
+                model.pickTilesFromFactory(factory, color);
         }
 
     }
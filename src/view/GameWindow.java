@@ -0,0 +1,142 @@
+package view;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.GridBagLayout;
+import java.util.ArrayDeque;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.JTabbedPane;
+import javax.swing.WindowConstants;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import model.Game;
+import model.PlayerBoard;
+
+/**
+ * A single window holding a game's common area and a tab for each player board. A board's view is only built (or
+ * taken from a pool of views left by finished games) when its tab is first shown.
+ *
+ * @author jsnhlbr5
+ */
+public class GameWindow extends JFrame implements UpdateBus.Target
+{
+    /**
+     * Player board views left over from disposed windows, ready to be given a new model; only used on the EDT
+     */
+    private static final ArrayDeque<PlayerBoardView> viewPool = new ArrayDeque<PlayerBoardView>();
+
+    private final Game model;
+    private final JTabbedPane tabs;
+
+    /**
+     * Constructs a new window for the given game, around the given (embedded) common area view
+     *
+     * @param m
+     *            the Game to use as a logical model
+     * @param cav
+     *            the game's common area view, created without a window of its own
+     */
+    public GameWindow(Game m, CommonAreaView cav)
+    {
+        super("Azul");
+        model = m;
+        setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        setJMenuBar(cav.createMenuBar());
+
+        // Keeps the common area at its preferred size, regardless of the tabs' height
+        JPanel west = new JPanel(new GridBagLayout());
+        west.add(cav);
+        add(west, BorderLayout.WEST);
+
+        tabs = new JTabbedPane();
+        for (int i = 0; i < model.getPlayerCount(); ++i)
+        {
+            JPanel placeholder = new JPanel();
+            placeholder.setPreferredSize(new Dimension(750, 750));
+            tabs.addTab(model.getPlayerBoard(i).player, placeholder);
+        }
+        tabs.addChangeListener(new ChangeListener()
+        {
+            @Override
+            public void stateChanged(ChangeEvent e)
+            {
+                realizeTab(tabs.getSelectedIndex());
+            }
+        });
+        add(tabs, BorderLayout.CENTER);
+        pack();
+        setIconImage(ViewUtils.getImageIcon("/img/TEAL.png").getImage());
+    }
+
+    /**
+     * Builds the view for the given player's tab, if it doesn't have one yet
+     *
+     * @param i
+     *            the player's seat index
+     */
+    private void realizeTab(int i)
+    {
+        if (i < 0)
+            return;
+        PlayerBoard pb = model.getPlayerBoard(i);
+        if (pb.getView() != null)
+            return;
+        PlayerBoardView v = viewPool.poll();
+        if (v == null)
+            v = new PlayerBoardView();
+        pb.setView(v);
+        v.setModel(pb);
+        tabs.setComponentAt(i, v);
+    }
+
+    /**
+     * Updates the tab titles to show whose turn it is, and switches to that player's tab.
+     */
+    @Override
+    public void applyUpdates(int changes)
+    {
+        if ((changes & UpdateBus.TITLE) == 0)
+            return;
+        int active = -1;
+        for (int i = 0; i < model.getPlayerCount(); ++i)
+        {
+            PlayerBoard pb = model.getPlayerBoard(i);
+            if (pb.isActivePlayer())
+            {
+                tabs.setTitleAt(i, pb.player + " (Active Player)");
+                active = i;
+            }
+            else
+            {
+                tabs.setTitleAt(i, pb.player);
+            }
+        }
+        if (active >= 0 && active != tabs.getSelectedIndex())
+            tabs.setSelectedIndex(active);
+        else
+            realizeTab(active);
+    }
+
+    /**
+     * Closes this window, detaching the player board views it built and returning them to the pool for later games.
+     */
+    @Override
+    public void dispose()
+    {
+        for (int i = 0; i < model.getPlayerCount(); ++i)
+        {
+            PlayerBoard pb = model.getPlayerBoard(i);
+            PlayerBoardView v = pb.getView();
+            if (v != null)
+            {
+                pb.setView(null);
+                tabs.setComponentAt(i, new JPanel());
+                viewPool.push(v);
+            }
+        }
+        super.dispose();
+    }
+}
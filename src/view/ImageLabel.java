@@ -21,6 +21,21 @@ public class ImageLabel extends JLabel
         myImage = image.getImage();
     }
 
+    /**
+     * Changes the image shown by this label, repainting it if the image is different
+     *
+     * @param image
+     *            the new image
+     */
+    public void setImage(ImageIcon image)
+    {
+        if (image.getImage() != myImage)
+        {
+            myImage = image.getImage();
+            repaint();
+        }
+    }
+
     /**
      * Overrides the paint method to render the given image at the full size of the label, scaling the image as
      * necessary
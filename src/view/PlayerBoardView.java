@@ -1,8 +1,6 @@
 package view;
 
-import java.awt.Component;
 import java.awt.Dimension;
-import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 
 import javax.swing.AbstractAction;
@@ -13,35 +11,40 @@ import javax.swing.JLabel;
 import javax.swing.JLayeredPane;
 import javax.swing.WindowConstants;
 
+import metrics.GameMetrics;
+import metrics.ViewRedrawEvent;
 import model.PlayerBoard;
-import model.TileCollection;
 
 /**
  * Visual representation of an individual player's board
  *
  * @author jsnhlbr5
  */
-public class PlayerBoardView extends JLayeredPane
+public class PlayerBoardView extends JLayeredPane implements UpdateBus.Target
 {
     private PlayerBoard model;
     private JLabel scoreMarker;
     private JButton[] buildRowButtons;
     private JFrame frame;
+    // One reusable label per tile position, shown or hidden as the model changes
+    private JLabel[][] buildRowTiles;
+    private JLabel[] floorTiles;
+    private JLabel[][] wallTiles;
 
-    // Constants used to position tiles
-    private static final int BUILD_ROW_X_POS = 298;
-    private static final int BUILD_ROW_Y_POS = 264;
-    private static final int BUILD_ROW_X_OFFSET = -66;
-    private static final int BUILD_ROW_Y_OFFSET = 66;
+    // Constants used to position tiles (also used by ThumbnailRenderer)
+    static final int BUILD_ROW_X_POS = 298;
+    static final int BUILD_ROW_Y_POS = 264;
+    static final int BUILD_ROW_X_OFFSET = -66;
+    static final int BUILD_ROW_Y_OFFSET = 66;
 
-    private static final int WALL_ROW_X_POS = 393;
-    private static final int WALL_ROW_Y_POS = 265;
-    private static final int WALL_ROW_X_OFFSET = 66;
-    private static final int WALL_ROW_Y_OFFSET = 65;
+    static final int WALL_ROW_X_POS = 393;
+    static final int WALL_ROW_Y_POS = 265;
+    static final int WALL_ROW_X_OFFSET = 66;
+    static final int WALL_ROW_Y_OFFSET = 65;
 
-    private static final int FLOOR_X_POS = 33;
-    private static final int FLOOR_Y_POS = 645;
-    private static final int FLOOR_X_OFFSET = 72;
+    static final int FLOOR_X_POS = 33;
+    static final int FLOOR_Y_POS = 645;
+    static final int FLOOR_X_OFFSET = 72;
 
     private static final int SCORE_X_POS = 34;
     private static final int SCORE_Y_POS = 0;
@@ -49,15 +52,31 @@ public class PlayerBoardView extends JLayeredPane
     private static final int[] SCORE_Y_OFFSETS = { 0, 40, 80, 120, 164, 208 };
 
     /**
-     * Constructs a new visual representation of the given player board.
+     * Constructs a new visual representation of the given player board, in its own window.
      *
      * @param m
      *            the logical model to use
      */
     public PlayerBoardView(PlayerBoard m)
     {
+        this();
         model = m;
+        updateButtons();
+
+        frame = new JFrame(model.player);
+        frame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        frame.add(this);
+        frame.pack();
+        frame.setResizable(false);
+        frame.setIconImage(ViewUtils.getImageIcon("/img/TEAL.png").getImage());
+    }
 
+    /**
+     * Constructs a new player board view with no window of its own, to be embedded in another container. It shows an
+     * empty board until it is given a model with setModel().
+     */
+    public PlayerBoardView()
+    {
         this.setPreferredSize(new Dimension(750, 750));
         JLabel board = new JLabel(ViewUtils.getImageIcon("/img/PlayerBoard.png"));
         board.setBounds(0, 0, 750, 750);
@@ -66,6 +85,29 @@ public class PlayerBoardView extends JLayeredPane
         scoreMarker.setBounds(SCORE_X_POS, SCORE_Y_POS, 30, 30); // Score is known to be 0
         this.add(scoreMarker, ViewUtils.SCORE_LAYER);
 
+        buildRowTiles = new JLabel[5][];
+        wallTiles = new JLabel[5][5];
+        for (int r = 0; r < 5; ++r)
+        {
+            // Row r holds r+1 tiles
+            buildRowTiles[r] = new JLabel[r + 1];
+            for (int c = 0; c <= r; ++c)
+            {
+                buildRowTiles[r][c] = createTile(null, BUILD_ROW_X_POS + (BUILD_ROW_X_OFFSET * c),
+                        BUILD_ROW_Y_POS + (BUILD_ROW_Y_OFFSET * r));
+            }
+            for (int c = 0; c < 5; ++c)
+            {
+                wallTiles[r][c] = createTile(ViewUtils.getImageIcon("/img/" + getColorForWallPos(r, c) + ".png"),
+                        WALL_ROW_X_POS + (WALL_ROW_X_OFFSET * c), WALL_ROW_Y_POS + (WALL_ROW_Y_OFFSET * r));
+            }
+        }
+        floorTiles = new JLabel[7];
+        for (int i = 0; i < 7; ++i)
+        {
+            floorTiles[i] = createTile(null, FLOOR_X_POS + (FLOOR_X_OFFSET * i), FLOOR_Y_POS);
+        }
+
         // 5 build rows plus floor line
         buildRowButtons = new JButton[6];
         for (int i = 0; i < 5; ++i)
@@ -78,24 +120,41 @@ public class PlayerBoardView extends JLayeredPane
         buildRowButtons[5] = new InvisibleButton(new PlaceTilesAction(5));
         buildRowButtons[5].setBounds(FLOOR_X_POS, FLOOR_Y_POS, 60 + (FLOOR_X_OFFSET * 6), 60);
         this.add(buildRowButtons[5], ViewUtils.INTERFACE_LAYER);
-        updateButtons();
+        for (int i = 0; i < 6; ++i)
+        {
+            buildRowButtons[i].setEnabled(false);
+        }
+    }
 
-        frame = new JFrame(model.player);
-        frame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
-        frame.add(this);
-        frame.pack();
-        frame.setResizable(false);
-        frame.setIconImage(Toolkit.getDefaultToolkit().getImage(ViewUtils.class.getResource("/img/TEAL.png")));
+    /**
+     * Connects this view to a (possibly different) player board and brings it fully up to date, so that one view can
+     * be reused across games.
+     *
+     * @param m
+     *            the logical model to use
+     */
+    public void setModel(PlayerBoard m)
+    {
+        model = m;
+        updateButtons();
+        updateTiles();
+        updateScore();
+        updateTitle(model.isActivePlayer());
     }
 
     /**
-     * Overrides setVisible() to trigger on the parent frame instead.
+     * Overrides setVisible() to trigger on the parent frame instead, if this view has one.
      *
      * Also contains a "hack" to eliminate a visual bug.
      */
     @Override
     public void setVisible(boolean b)
     {
+        if (frame == null)
+        {
+            super.setVisible(b);
+            return;
+        }
         // IDK why, but without this, sometimes there's a 10-pixel gap on the right and bottom
         this.setSize(750, 750);
         frame.pack();
@@ -103,61 +162,101 @@ public class PlayerBoardView extends JLayeredPane
     }
 
     /**
-     * Updates build row, floor line, and wall tiles to match logical model.
+     * Closes this view's window, if it has one.
+     */
+    public void dispose()
+    {
+        if (frame != null)
+            frame.dispose();
+    }
+
+    /**
+     * Runs the update methods matching the posted changes.
+     */
+    @Override
+    public void applyUpdates(int changes)
+    {
+        if ((changes & UpdateBus.BUTTONS) != 0)
+            updateButtons();
+        if ((changes & UpdateBus.TILES) != 0)
+            updateTiles(TileAnimator.forComponent(this));
+        if ((changes & UpdateBus.SCORE) != 0)
+            updateScore();
+        if ((changes & UpdateBus.TITLE) != 0)
+            updateTitle(model.isActivePlayer());
+    }
+
+    /**
+     * Updates build row, floor line, and wall tiles to match logical model. Only the tile positions that actually
+     * changed are repainted.
      */
     public void updateTiles()
     {
-        // Remove old tiles
-        for (Component c : getComponentsInLayer(ViewUtils.TILE_LAYER))
-            this.remove(c);
+        updateTiles(null);
+    }
 
-        TileCollection tc;
+    /**
+     * Updates the tiles to match the logical model, animating the ones that appeared: new build row and floor line
+     * tiles drop in from the top of the board, and new wall tiles slide across from their build row.
+     *
+     * @param animator
+     *            the animator for this view's window, or null to show changes immediately
+     */
+    private void updateTiles(TileAnimator animator)
+    {
+        long start = GameMetrics.PLAYER_BOARD_VIEW_UPDATE.start();
+        ViewRedrawEvent redraw = new ViewRedrawEvent();
+        redraw.begin();
         ImageIcon tileImage;
-        JLabel tile;
+        int shown = 0;
         for (int r = 0; r < 5; ++r)
         {
-            tc = model.getBuildRowTiles(r);
-            int count = tc.size();
-            if (count > 0)
+            int count = model.getBuildRowCount(r);
+            shown += count;
+            tileImage = (count > 0) ? ViewUtils.getTileIcon(model.getBuildRowColor(r)) : null;
+            for (int c = 0; c <= r; ++c)
             {
-                tileImage = ViewUtils.getImageIcon("/img/" + tc.getColor().name() + ".png");
-                for (int c = 0; c < count; ++c)
-                {
-                    tile = new JLabel(tileImage);
-                    tile.setBounds(BUILD_ROW_X_POS + (BUILD_ROW_X_OFFSET * c),
-                            BUILD_ROW_Y_POS + (BUILD_ROW_Y_OFFSET * r), 60, 60);
-                    this.add(tile, ViewUtils.TILE_LAYER);
-                }
+                if (showTile(buildRowTiles[r][c], (c < count) ? tileImage : null, animator))
+                    dropIn(buildRowTiles[r][c], animator);
             }
         }
 
-        tc = model.getFloorLineTiles();
-        int count = Math.min(tc.size(), 7);
-        for (int i = 0; i < count; ++i)
+        int count = Math.min(model.getFloorLineCount(), 7);
+        shown += count;
+        for (int i = 0; i < 7; ++i)
         {
-            tileImage = ViewUtils.getImageIcon("/img/" + tc.get(i).name() + ".png");
-            tile = new JLabel(tileImage);
-            tile.setBounds(FLOOR_X_POS + (FLOOR_X_OFFSET * i), FLOOR_Y_POS, 60, 60);
-            this.add(tile, ViewUtils.TILE_LAYER);
+            if (showTile(floorTiles[i], (i < count) ? ViewUtils.getTileIcon(model.getFloorLineTile(i)) : null,
+                    animator))
+                dropIn(floorTiles[i], animator);
         }
 
-        boolean[][] wall = model.getWall();
+        int wall = model.getWallMask();
         for (int r = 0; r < 5; ++r)
         {
             for (int c = 0; c < 5; ++c)
             {
-                if (wall[r][c])
+                boolean tiled = (wall & (1 << (r * 5 + c))) != 0;
+                if (tiled)
+                    ++shown;
+                if (showTile(wallTiles[r][c], tiled ? (ImageIcon) wallTiles[r][c].getIcon() : null, animator)
+                        && animator != null)
                 {
-                    tileImage = ViewUtils.getImageIcon("/img/" + getColorForWallPos(r, c) + ".png");
-                    tile = new JLabel(tileImage);
-                    tile.setBounds(WALL_ROW_X_POS + (WALL_ROW_X_OFFSET * c), WALL_ROW_Y_POS + (WALL_ROW_Y_OFFSET * r),
-                            60, 60);
-                    this.add(tile, ViewUtils.TILE_LAYER);
+                    // From where the last tile of the build row sat
+                    animator.move(((ImageIcon) wallTiles[r][c].getIcon()).getImage(), this,
+                            buildRowTiles[r][0].getX(), buildRowTiles[r][0].getY(), 60, wallTiles[r][c]);
                 }
             }
         }
 
-        this.repaint();
+        redraw.end();
+        if (redraw.shouldCommit())
+        {
+            redraw.view = "PlayerBoardView";
+            redraw.tilesShown = shown;
+            redraw.commit();
+        }
+
+        GameMetrics.PLAYER_BOARD_VIEW_UPDATE.stop(start);
     }
 
     /**
@@ -166,10 +265,32 @@ public class PlayerBoardView extends JLayeredPane
     public void updateScore()
     {
         int score = model.getScore();
-        scoreMarker.setBounds(SCORE_X_POS + (int) (Math.rint(SCORE_X_OFFSET * Math.max(score % 20 - 1, 0))),
-                SCORE_Y_POS + SCORE_Y_OFFSETS[(score + 19) / 20], 30, 30);
+        // setBounds() repaints just the marker's old and new positions
+        scoreMarker.setBounds(getScoreX(score), getScoreY(score), 30, 30);
+    }
 
-        this.repaint();
+    /**
+     * Returns the horizontal position of the score marker for the given score
+     *
+     * @param score
+     *            the player's score
+     * @return the horizontal position of the score marker
+     */
+    static int getScoreX(int score)
+    {
+        return SCORE_X_POS + (int) (Math.rint(SCORE_X_OFFSET * Math.max(score % 20 - 1, 0)));
+    }
+
+    /**
+     * Returns the vertical position of the score marker for the given score
+     *
+     * @param score
+     *            the player's score
+     * @return the vertical position of the score marker
+     */
+    static int getScoreY(int score)
+    {
+        return SCORE_Y_POS + SCORE_Y_OFFSETS[(score + 19) / 20];
     }
 
     /**
@@ -195,7 +316,7 @@ public class PlayerBoardView extends JLayeredPane
     }
 
     /**
-     * Updates the window title to reflect whether it is this player's turn.
+     * Updates the window title (if this view has its own window) to reflect whether it is this player's turn.
      *
      * @param currentPlayer
      *            true to add text to indicate that it is this player's turn, false to return the window title to just
@@ -203,12 +324,78 @@ public class PlayerBoardView extends JLayeredPane
      */
     public void updateTitle(boolean currentPlayer)
     {
+        if (frame == null)
+            return;
         if (currentPlayer)
             frame.setTitle(model.player + " (Active Player)");
         else
             frame.setTitle(model.player);
     }
 
+    /**
+     * Creates a hidden tile label at the given position on the tile layer
+     *
+     * @param icon
+     *            the initial image for the tile, may be null
+     * @param x
+     *            the horizontal position
+     * @param y
+     *            the vertical position
+     * @return the new tile label
+     */
+    private JLabel createTile(ImageIcon icon, int x, int y)
+    {
+        JLabel tile = new JLabel(icon);
+        tile.setBounds(x, y, 60, 60);
+        tile.setVisible(false);
+        this.add(tile, ViewUtils.TILE_LAYER);
+        return tile;
+    }
+
+    /**
+     * Shows the given image on a tile label, or hides it if the image is null. Does nothing (and so triggers no
+     * repaint) if the tile already matches.
+     *
+     * @param tile
+     *            the tile label to update
+     * @param icon
+     *            the image to show, or null to hide the tile
+     * @param animator
+     *            the animator that may have a tile heading for this label, or null
+     * @return true if the tile was hidden and is now shown
+     */
+    private boolean showTile(JLabel tile, ImageIcon icon, TileAnimator animator)
+    {
+        if (icon == null)
+        {
+            if (tile.isVisible())
+                tile.setVisible(false);
+            else if (animator != null)
+                animator.cancel(tile);
+            return false;
+        }
+        if (tile.getIcon() != icon)
+            tile.setIcon(icon);
+        if (tile.isVisible())
+            return false;
+        tile.setVisible(true);
+        return true;
+    }
+
+    /**
+     * Animates a newly shown tile dropping onto its place from the top edge of the board
+     *
+     * @param tile
+     *            the tile label that was just shown
+     * @param animator
+     *            the animator for this view's window, or null to leave the tile in place
+     */
+    private void dropIn(JLabel tile, TileAnimator animator)
+    {
+        if (animator != null)
+            animator.move(((ImageIcon) tile.getIcon()).getImage(), 0, -tile.getY(), tile);
+    }
+
     /**
      * Used to determine tile color for wall positions
      *
@@ -218,7 +405,7 @@ public class PlayerBoardView extends JLayeredPane
      *            column number
      * @return the color name
      */
-    private String getColorForWallPos(int row, int col)
+    static String getColorForWallPos(int row, int col)
     {
         // plus 5 because we want it to always be positive
         switch ((col - row + 5) % 5)
@@ -0,0 +1,436 @@
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.imageio.ImageIO;
+
+import model.BackgroundExecutor;
+import model.Color;
+import model.Game;
+import model.PlayerBoard;
+
+/**
+ * Draws whole game states into images without creating any Swing components, for game logs, lobby previews and
+ * spectators. The common area is drawn on the left using the same layout as CommonAreaView, and the player boards in a
+ * 2x2 grid on the right using the layout of PlayerBoardView. The state is captured on the calling thread and drawn on
+ * the shared background executor; images are cached by state, so an unchanged game is only drawn once.
+ *
+ * @author jsnhlbr5
+ */
+public class ThumbnailRenderer
+{
+    // The full-size canvas, in the units of the views' own layout constants
+    private static final int COMMON_SIZE = CommonAreaView.DEFAULT_SIZE;
+    private static final int BOARD_SIZE = 750;
+    private static final int BOARD_CELL = COMMON_SIZE / 2;
+    private static final int CANVAS_WIDTH = COMMON_SIZE + 2 * BOARD_CELL;
+    private static final int CANVAS_HEIGHT = COMMON_SIZE;
+    private static final int TILE = 60;
+
+    /**
+     * The number of images kept by default
+     */
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final int width, height;
+    // Scale from canvas units to output pixels, and from player board units to output pixels
+    private final float scale, boardScale;
+    // Images pre-scaled to their drawn size, so drawing them is a plain copy
+    private final Image factory, board, scoreMarker;
+    private final Image[] commonTiles, boardTiles;
+    private final Image[][] wallTiles;
+
+    private final Map<StateKey, CompletableFuture<BufferedImage>> cache;
+
+    /**
+     * Creates a renderer producing images of the given width, keeping the default number of images cached
+     *
+     * @param width
+     *            the width of the images (in pixels); the height is half of this
+     */
+    public ThumbnailRenderer(int width)
+    {
+        this(width, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a renderer producing images of the given width, keeping at most the given number of images cached (the
+     * least recently used are dropped first)
+     *
+     * @param width
+     *            the width of the images (in pixels); the height is half of this
+     * @param cacheSize
+     *            the most images to keep
+     */
+    public ThumbnailRenderer(int width, final int cacheSize)
+    {
+        if (width < 2)
+            throw new IllegalArgumentException("Thumbnails must be at least 2 pixels wide.");
+        this.width = width;
+        height = width * CANVAS_HEIGHT / CANVAS_WIDTH;
+        scale = width / (float) CANVAS_WIDTH;
+        boardScale = scale * BOARD_CELL / BOARD_SIZE;
+
+        factory = scaleImage("/img/factory.png", COMMON_SIZE * CommonAreaView.FACTORY_SIZE * scale);
+        board = scaleImage("/img/PlayerBoard.png", BOARD_SIZE * boardScale);
+        scoreMarker = scaleImage("/img/score.png", 30 * boardScale);
+        commonTiles = new Image[ViewUtils.COLORS.length];
+        boardTiles = new Image[ViewUtils.COLORS.length];
+        for (Color c : ViewUtils.COLORS)
+        {
+            commonTiles[c.ordinal()] = scaleImage("/img/" + c + ".png", TILE * scale);
+            boardTiles[c.ordinal()] = scaleImage("/img/" + c + ".png", TILE * boardScale);
+        }
+        wallTiles = new Image[5][5];
+        for (int r = 0; r < 5; ++r)
+        {
+            for (int c = 0; c < 5; ++c)
+            {
+                wallTiles[r][c] = boardTiles[Color.valueOf(PlayerBoardView.getColorForWallPos(r, c)).ordinal()];
+            }
+        }
+
+        cache = new LinkedHashMap<StateKey, CompletableFuture<BufferedImage>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StateKey, CompletableFuture<BufferedImage>> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the width of the images drawn by this renderer
+     *
+     * @return the width of the images (in pixels)
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the images drawn by this renderer
+     *
+     * @return the height of the images (in pixels)
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Draws the current state of the given game. The state is read immediately, so this must be called from the thread
+     * that plays the game (the event dispatch thread for a game with views); the drawing happens in the background. The
+     * returned image is shared with other callers asking for the same state and must not be modified.
+     *
+     * @param g
+     *            the game to draw
+     * @return the image, once it has been drawn
+     */
+    public CompletableFuture<BufferedImage> render(Game g)
+    {
+        final StateKey key = new StateKey(g);
+        final CompletableFuture<BufferedImage> image;
+        synchronized (cache)
+        {
+            CompletableFuture<BufferedImage> cached = cache.get(key);
+            if (cached != null)
+                return cached;
+            // Cached before it's drawn, so that concurrent requests for the same state share one drawing
+            image = CompletableFuture.supplyAsync(new Supplier<BufferedImage>()
+            {
+                @Override
+                public BufferedImage get()
+                {
+                    return draw(key.state);
+                }
+            }, BackgroundExecutor.get());
+            cache.put(key, image);
+        }
+        // A drawing that failed is forgotten, so that the state is drawn again next time
+        image.whenComplete(new BiConsumer<BufferedImage, Throwable>()
+        {
+            @Override
+            public void accept(BufferedImage img, Throwable t)
+            {
+                if (t != null)
+                {
+                    synchronized (cache)
+                    {
+                        cache.remove(key, image);
+                    }
+                }
+            }
+        });
+        return image;
+    }
+
+    /**
+     * Draws the current state of the given game as PNG data, with the same threading rules as render()
+     *
+     * @param g
+     *            the game to draw
+     * @return the PNG file contents, once encoded
+     */
+    public CompletableFuture<byte[]> renderPng(Game g)
+    {
+        return render(g).thenApplyAsync(new Function<BufferedImage, byte[]>()
+        {
+            @Override
+            public byte[] apply(BufferedImage img)
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try
+                {
+                    ImageIO.write(img, "png", out);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+                return out.toByteArray();
+            }
+        }, BackgroundExecutor.get());
+    }
+
+    /**
+     * Draws the given captured state
+     *
+     * @param s
+     *            the state, as encoded by StateKey
+     * @return the new image
+     */
+    private BufferedImage draw(int[] s)
+    {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = img.createGraphics();
+        g2.setColor(java.awt.Color.WHITE);
+        g2.fillRect(0, 0, width, height);
+
+        int players = s[0];
+        int factories = s[1];
+        int pos = 2;
+        float[] fx, fy;
+        switch (factories)
+        {
+            case 5:
+                fx = CommonAreaView.fx5;
+                fy = CommonAreaView.fy5;
+                break;
+            case 7:
+                fx = CommonAreaView.fx7;
+                fy = CommonAreaView.fy7;
+                break;
+            default:
+                fx = CommonAreaView.fx9;
+                fy = CommonAreaView.fy9;
+                break;
+        }
+        float factorySize = COMMON_SIZE * CommonAreaView.FACTORY_SIZE;
+        for (int f = 0; f < factories; ++f)
+        {
+            float x = fx[f] * COMMON_SIZE;
+            float y = fy[f] * COMMON_SIZE;
+            g2.drawImage(factory, px(x), px(y), null);
+            for (int i = 0; i < 4; ++i, ++pos)
+            {
+                if (s[pos] == 0)
+                    continue;
+                // 0 1
+                // 2 3
+                float tx = (i % 2 == 0) ? FactoryView.FIRST_POSITION : FactoryView.SECOND_POSITION;
+                float ty = (i < 2) ? FactoryView.FIRST_POSITION : FactoryView.SECOND_POSITION;
+                g2.drawImage(commonTiles[s[pos] - 1], px(x + tx * factorySize), px(y + ty * factorySize), null);
+            }
+        }
+
+        // The center area, laid out as CenterAreaView's FlowLayout does at the default size
+        int total = 0;
+        for (int c = 0; c < ViewUtils.COLORS.length; ++c)
+            total += s[pos + c];
+        int tile = CenterAreaView.DEFAULT_BASE_SIZE;
+        int gap = tile / 10;
+        int perRow = Math.max(1, (int) Math.ceil(Math.sqrt(total)));
+        int areaSize = (int) Math.floor(tile * 1.1 * perRow) + gap;
+        int areaPos = (COMMON_SIZE - areaSize) / 2;
+        int n = 0;
+        for (int c = 0; c < ViewUtils.COLORS.length; ++c, ++pos)
+        {
+            for (int i = 0; i < s[pos]; ++i, ++n)
+            {
+                int inRow = Math.min(perRow, total - (n / perRow) * perRow);
+                int rowStart = areaPos + (areaSize - (inRow * tile + (inRow - 1) * gap)) / 2;
+                int x = rowStart + (n % perRow) * (tile + gap);
+                int y = areaPos + gap + (n / perRow) * (tile + gap);
+                g2.drawImage(commonTiles[c], px(x), px(y), null);
+            }
+        }
+
+        for (int p = 0; p < players; ++p)
+        {
+            int bx = px(COMMON_SIZE + (p % 2) * BOARD_CELL);
+            int by = px((p / 2) * BOARD_CELL);
+            g2.drawImage(board, bx, by, null);
+            for (int r = 0; r < 5; ++r, ++pos)
+            {
+                int count = s[pos] >> 3;
+                for (int c = 0; c < count; ++c)
+                {
+                    g2.drawImage(boardTiles[(s[pos] & 7) - 1],
+                            bx + bpx(PlayerBoardView.BUILD_ROW_X_POS + (PlayerBoardView.BUILD_ROW_X_OFFSET * c)),
+                            by + bpx(PlayerBoardView.BUILD_ROW_Y_POS + (PlayerBoardView.BUILD_ROW_Y_OFFSET * r)), null);
+                }
+            }
+            for (int i = 0; i < 7; ++i, ++pos)
+            {
+                if (s[pos] == 0)
+                    continue;
+                g2.drawImage(boardTiles[s[pos] - 1],
+                        bx + bpx(PlayerBoardView.FLOOR_X_POS + (PlayerBoardView.FLOOR_X_OFFSET * i)),
+                        by + bpx(PlayerBoardView.FLOOR_Y_POS), null);
+            }
+            int wall = s[pos++];
+            for (int r = 0; r < 5; ++r)
+            {
+                for (int c = 0; c < 5; ++c)
+                {
+                    if ((wall & (1 << (r * 5 + c))) == 0)
+                        continue;
+                    g2.drawImage(wallTiles[r][c],
+                            bx + bpx(PlayerBoardView.WALL_ROW_X_POS + (PlayerBoardView.WALL_ROW_X_OFFSET * c)),
+                            by + bpx(PlayerBoardView.WALL_ROW_Y_POS + (PlayerBoardView.WALL_ROW_Y_OFFSET * r)), null);
+                }
+            }
+            int score = s[pos++];
+            g2.drawImage(scoreMarker, bx + bpx(PlayerBoardView.getScoreX(score)),
+                    by + bpx(PlayerBoardView.getScoreY(score)), null);
+        }
+        g2.dispose();
+        return img;
+    }
+
+    /**
+     * Converts a canvas position to output pixels
+     *
+     * @param v
+     *            the position on the full-size canvas
+     * @return the position in the image
+     */
+    private int px(float v)
+    {
+        return Math.round(v * scale);
+    }
+
+    /**
+     * Converts a position on a player board to output pixels, relative to the board's corner
+     *
+     * @param v
+     *            the position on a full-size player board
+     * @return the position in the image, relative to the board's corner
+     */
+    private int bpx(float v)
+    {
+        return Math.round(v * boardScale);
+    }
+
+    /**
+     * Loads an image and scales it to the given square size
+     *
+     * @param path
+     *            the resource path
+     * @param size
+     *            the size to draw it at (in pixels)
+     * @return the scaled image
+     */
+    private static Image scaleImage(String path, float size)
+    {
+        int s = Math.max(1, Math.round(size));
+        BufferedImage img = new BufferedImage(s, s, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = img.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(ViewUtils.getImageIcon(path).getImage(), 0, 0, s, s, null);
+        g2.dispose();
+        return img;
+    }
+
+    /**
+     * Everything drawn for a game state, packed into ints; two games that look the same have equal keys. The layout
+     * is: player count, factory count, 4 tiles per factory (Color ordinal + 1, or 0 for none), the center count for
+     * each Color, then for each player 5 build rows (count << 3 | Color ordinal + 1), 7 floor tiles, the wall mask and
+     * the score.
+     *
+     * @author jsnhlbr5
+     */
+    private static final class StateKey
+    {
+        final int[] state;
+        private final int hash;
+
+        StateKey(Game g)
+        {
+            int players = g.getPlayerCount();
+            int factories = g.getFactoryCount();
+            state = new int[2 + factories * 4 + ViewUtils.COLORS.length + players * 14];
+            state[0] = players;
+            state[1] = factories;
+            int pos = 2;
+            for (int f = 0; f < factories; ++f)
+            {
+                int count = g.getFactoryTileCount(f);
+                for (int i = 0; i < 4; ++i, ++pos)
+                {
+                    state[pos] = (i < count) ? g.getFactoryTile(f, i).ordinal() + 1 : 0;
+                }
+            }
+            for (Color c : ViewUtils.COLORS)
+            {
+                state[pos++] = g.getCenterColorCount(c);
+            }
+            for (int p = 0; p < players; ++p)
+            {
+                PlayerBoard pb = g.getPlayerBoard(p);
+                for (int r = 0; r < 5; ++r, ++pos)
+                {
+                    int count = pb.getBuildRowCount(r);
+                    state[pos] = (count > 0) ? (count << 3) | (pb.getBuildRowColor(r).ordinal() + 1) : 0;
+                }
+                int floor = Math.min(pb.getFloorLineCount(), 7);
+                for (int i = 0; i < 7; ++i, ++pos)
+                {
+                    state[pos] = (i < floor) ? pb.getFloorLineTile(i).ordinal() + 1 : 0;
+                }
+                state[pos++] = pb.getWallMask();
+                state[pos++] = pb.getScore();
+            }
+            hash = Arrays.hashCode(state);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof StateKey && ((StateKey) o).hash == hash && Arrays.equals(((StateKey) o).state, state);
+        }
+    }
+}
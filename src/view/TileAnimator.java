@@ -0,0 +1,259 @@
+package view;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JComponent;
+import javax.swing.JLayeredPane;
+import javax.swing.JRootPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Moves tile images across a window, drawn on a transparent layer above everything else in it. A tile's destination
+ * label is hidden while its sprite is in flight and shown again when it lands. One Swing Timer drives all of a window's
+ * sprites at a fixed frame rate; positions are worked out from the time elapsed, so frames that arrive late (or are
+ * coalesced away by the Timer) are simply skipped. Sprites come from a fixed pool, so running an animation allocates
+ * nothing, and each frame repaints only the area the sprites moved across.
+ *
+ * The length of a move (in milliseconds) is read from the "azul.animationDuration" system property, default 250; 0 or
+ * less turns animation off.
+ *
+ * @author jsnhlbr5
+ */
+public class TileAnimator extends JComponent implements ActionListener
+{
+    /**
+     * The length of one tile move, in milliseconds
+     */
+    private static final int DURATION = Integer.getInteger("azul.animationDuration", 250);
+    private static final long DURATION_NANOS = DURATION * 1000000L;
+    // ~60 fps
+    private static final int FRAME_DELAY = 16;
+    // Enough for every tile a single turn can move; any beyond this are shown without moving
+    private static final int MAX_SPRITES = 64;
+    private static final String PROPERTY_KEY = "view.TileAnimator";
+
+    private final Timer timer;
+    private final Sprite[] sprites;
+    // Sprites [0, active) are in flight
+    private int active;
+
+    /**
+     * Returns the animator for the window holding the given component, creating it on first use. Must be called on
+     * the event dispatch thread.
+     *
+     * @param c
+     *            a component in the window
+     * @return the window's animator, or null if the component isn't in a window yet or animation is turned off
+     */
+    static TileAnimator forComponent(Component c)
+    {
+        if (DURATION <= 0)
+            return null;
+        JRootPane root = SwingUtilities.getRootPane(c);
+        if (root == null)
+            return null;
+        TileAnimator animator = (TileAnimator) root.getClientProperty(PROPERTY_KEY);
+        if (animator == null)
+        {
+            animator = new TileAnimator();
+            root.getLayeredPane().add(animator, JLayeredPane.DRAG_LAYER);
+            root.putClientProperty(PROPERTY_KEY, animator);
+        }
+        return animator;
+    }
+
+    /**
+     * Creates an animator with a full pool of idle sprites
+     */
+    private TileAnimator()
+    {
+        setOpaque(false);
+        timer = new Timer(FRAME_DELAY, this);
+        timer.setCoalesce(true);
+        sprites = new Sprite[MAX_SPRITES];
+        for (int i = 0; i < MAX_SPRITES; ++i)
+        {
+            sprites[i] = new Sprite();
+        }
+    }
+
+    /**
+     * Moves a tile image from the given area of one component onto another component, which is hidden until the tile
+     * lands. If the destination isn't on screen, or every sprite is busy, the destination is just shown.
+     *
+     * @param image
+     *            the tile image
+     * @param from
+     *            the component the tile starts on
+     * @param x
+     *            the horizontal position of the tile's starting point, relative to from
+     * @param y
+     *            the vertical position of the tile's starting point, relative to from
+     * @param size
+     *            the starting size of the tile
+     * @param to
+     *            the component that shows the tile once it has landed
+     */
+    void move(Image image, Component from, int x, int y, int size, JComponent to)
+    {
+        if (active == MAX_SPRITES || !to.isShowing() || !from.isShowing())
+        {
+            to.setVisible(true);
+            return;
+        }
+        JLayeredPane layers = (JLayeredPane) getParent();
+        if (getWidth() != layers.getWidth() || getHeight() != layers.getHeight())
+            setBounds(0, 0, layers.getWidth(), layers.getHeight());
+        // A tile shown early by its view and then moved again starts over, rather than landing twice
+        cancel(to);
+        Point start = SwingUtilities.convertPoint(from, x, y, this);
+        Point end = SwingUtilities.convertPoint(to, 0, 0, this);
+
+        Sprite s = sprites[active++];
+        s.image = image;
+        s.target = to;
+        s.x0 = start.x;
+        s.y0 = start.y;
+        s.size0 = size;
+        s.x1 = end.x;
+        s.y1 = end.y;
+        s.size1 = to.getWidth();
+        s.x = s.x0;
+        s.y = s.y0;
+        s.size = s.size0;
+        s.start = System.nanoTime();
+        to.setVisible(false);
+        repaint(s.x, s.y, s.size, s.size);
+        if (!timer.isRunning())
+            timer.start();
+    }
+
+    /**
+     * Moves a tile image onto a component from the given area of the same component
+     *
+     * @param image
+     *            the tile image
+     * @param x
+     *            the horizontal position of the tile's starting point, relative to to
+     * @param y
+     *            the vertical position of the tile's starting point, relative to to
+     * @param to
+     *            the component that shows the tile once it has landed
+     */
+    void move(Image image, int x, int y, JComponent to)
+    {
+        move(image, to, x, y, to.getWidth(), to);
+    }
+
+    /**
+     * Stops any sprite heading for the given component, without showing it. Views call this when they hide a tile
+     * themselves, so that a late landing doesn't show it again.
+     *
+     * @param to
+     *            the destination component
+     */
+    void cancel(JComponent to)
+    {
+        for (int i = active - 1; i >= 0; --i)
+        {
+            if (sprites[i].target == to)
+            {
+                Sprite s = sprites[i];
+                repaint(s.x, s.y, s.size, s.size);
+                retire(i);
+            }
+        }
+    }
+
+    /**
+     * Advances every sprite to where it should be now, repainting only the area each one moved across, and lands the
+     * ones that have arrived.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e)
+    {
+        long now = System.nanoTime();
+        for (int i = active - 1; i >= 0; --i)
+        {
+            Sprite s = sprites[i];
+            float t = Math.min(1f, (now - s.start) / (float) DURATION_NANOS);
+            // Ease out, so tiles settle gently into place
+            t = 1 - (1 - t) * (1 - t);
+            int x = Math.round(s.x0 + (s.x1 - s.x0) * t);
+            int y = Math.round(s.y0 + (s.y1 - s.y0) * t);
+            int size = Math.round(s.size0 + (s.size1 - s.size0) * t);
+            int left = Math.min(x, s.x);
+            int top = Math.min(y, s.y);
+            repaint(left, top, Math.max(x + size, s.x + s.size) - left, Math.max(y + size, s.y + s.size) - top);
+            s.x = x;
+            s.y = y;
+            s.size = size;
+            if (now - s.start >= DURATION_NANOS)
+            {
+                s.target.setVisible(true);
+                retire(i);
+            }
+        }
+        if (active == 0)
+            timer.stop();
+    }
+
+    /**
+     * Returns the sprite at the given index to the idle part of the pool
+     *
+     * @param i
+     *            the index of the sprite
+     */
+    private void retire(int i)
+    {
+        Sprite s = sprites[i];
+        s.image = null;
+        s.target = null;
+        --active;
+        sprites[i] = sprites[active];
+        sprites[active] = s;
+    }
+
+    /**
+     * Never claims any point, so that mouse events always reach the window's components beneath.
+     */
+    @Override
+    public boolean contains(int x, int y)
+    {
+        return false;
+    }
+
+    /**
+     * Draws the sprites in flight.
+     */
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        for (int i = 0; i < active; ++i)
+        {
+            Sprite s = sprites[i];
+            g.drawImage(s.image, s.x, s.y, s.size, s.size, null);
+        }
+    }
+
+    /**
+     * A tile in flight; reused for every move
+     *
+     * @author jsnhlbr5
+     */
+    private static final class Sprite
+    {
+        Image image;
+        JComponent target;
+        int x0, y0, size0, x1, y1, size1;
+        // Where it was last drawn
+        int x, y, size;
+        long start;
+    }
+}
@@ -0,0 +1,98 @@
+package view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Collects change notifications from the logical model and delivers them to the views in batches on the event
+ * dispatch thread. However many changes are posted for a view before a batch runs, it is only updated once per batch,
+ * so end-of-round processing causes one redraw per view instead of a burst. Changes may be posted from any thread.
+ *
+ * @author jsnhlbr5
+ */
+public class UpdateBus
+{
+    /**
+     * Change flag: tiles on the view have changed
+     */
+    public static final int TILES = 1;
+    /**
+     * Change flag: which actions are available has changed
+     */
+    public static final int BUTTONS = 2;
+    /**
+     * Change flag: the player's score has changed
+     */
+    public static final int SCORE = 4;
+    /**
+     * Change flag: the active player has changed
+     */
+    public static final int TITLE = 8;
+
+    /**
+     * Implemented by views that receive their updates through an UpdateBus
+     *
+     * @author jsnhlbr5
+     */
+    public interface Target
+    {
+        /**
+         * Brings the view up to date with the logical model; always called on the event dispatch thread
+         *
+         * @param changes
+         *            the combination of change flags posted since the last batch
+         */
+        public void applyUpdates(int changes);
+    }
+
+    // Insertion-ordered so views update in the order the model first changed them
+    private Map<Target, Integer> pending = new LinkedHashMap<Target, Integer>();
+    private boolean flushScheduled;
+
+    /**
+     * Records that the given view is out of date, scheduling a batch on the event dispatch thread if one is not already
+     * pending.
+     *
+     * @param target
+     *            the view that needs updating
+     * @param changes
+     *            the change flags describing what is out of date
+     */
+    public synchronized void post(Target target, int changes)
+    {
+        Integer previous = pending.get(target);
+        pending.put(target, (previous == null) ? changes : previous | changes);
+        if (!flushScheduled)
+        {
+            flushScheduled = true;
+            SwingUtilities.invokeLater(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    flush();
+                }
+            });
+        }
+    }
+
+    /**
+     * Delivers every pending change; changes posted while this runs are delivered in the next batch.
+     */
+    private void flush()
+    {
+        Map<Target, Integer> batch;
+        synchronized (this)
+        {
+            batch = pending;
+            pending = new LinkedHashMap<Target, Integer>();
+            flushScheduled = false;
+        }
+        for (Map.Entry<Target, Integer> e : batch.entrySet())
+        {
+            e.getKey().applyUpdates(e.getValue());
+        }
+    }
+}
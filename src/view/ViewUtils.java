@@ -1,13 +1,22 @@
 package view;
 
 import java.awt.Container;
-import java.util.HashMap;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.Spring;
 import javax.swing.SpringLayout;
 
+import model.BackgroundExecutor;
+import model.Color;
+
 /**
  * A collection of static constants and methods used by multiple interface classes
  *
@@ -30,9 +39,37 @@ public class ViewUtils
     public static final Integer INTERFACE_LAYER = new Integer(30);
 
     /**
-     * A cache of the images loaded via getImageIcon()
+     * A shared copy of Color.values(), which would otherwise allocate a new array on every call
      */
-    private static HashMap<String, ImageIcon> iconCache = new HashMap<String, ImageIcon>();
+    static final Color[] COLORS = Color.values();
+
+    /**
+     * Every image used by the interface; decoded in the background by preloadImages()
+     */
+    private static final String[] IMAGE_PATHS = { "/img/BLUE.png", "/img/YELLOW.png", "/img/RED.png",
+            "/img/BLACK.png", "/img/TEAL.png", "/img/WHITE.png", "/img/ERROR.png", "/img/factory.png",
+            "/img/PlayerBoard.png", "/img/score.png", "/img/resize_handle.png" };
+
+    /**
+     * A cache of the images loaded via getImageIcon(), shared by every game in the process; safe to fill from the
+     * preloading threads
+     */
+    private static final ConcurrentHashMap<String, ImageIcon> iconCache = new ConcurrentHashMap<String, ImageIcon>();
+
+    /**
+     * The most decoded pixel data (in bytes) the cache will hold; images loaded beyond this are not cached
+     */
+    private static final long MAX_CACHED_BYTES = 64L << 20;
+
+    /**
+     * The decoded pixel data currently held by the cache, in bytes
+     */
+    private static final AtomicLong cachedBytes = new AtomicLong();
+
+    /**
+     * The tile images indexed by Color ordinal, filled in by getTileIcon()
+     */
+    private static final ImageIcon[] tileIcons = new ImageIcon[COLORS.length];
 
     /**
      * This class cannot be instantiated; all of its members are static
@@ -72,7 +109,28 @@ public class ViewUtils
     }
 
     /**
-     * Centralized image loading code, with caching to reduce file access time.
+     * Starts decoding every interface image in parallel on the shared background executor, so that the windows can be
+     * built without waiting on file access. Returns immediately; a later getImageIcon() call for an image that is still
+     * being decoded waits for that decode instead of starting its own.
+     */
+    public static void preloadImages()
+    {
+        for (final String path : IMAGE_PATHS)
+        {
+            BackgroundExecutor.get().execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    getImageIcon(path);
+                }
+            });
+        }
+    }
+
+    /**
+     * Centralized image loading code, with caching to reduce file access time. Safe to call from any thread. Once the
+     * cache is full, further images are still loaded but not kept.
      *
      * @param path
      *            the resource path
@@ -80,13 +138,67 @@ public class ViewUtils
      */
     public static ImageIcon getImageIcon(String path)
     {
-        if (iconCache.containsKey(path))
-            return iconCache.get(path);
-        java.net.URL uri = ViewUtils.class.getResource(path);
+        ImageIcon icon = iconCache.get(path);
+        if (icon != null)
+            return icon;
+        final java.net.URL uri = ViewUtils.class.getResource(path);
         if (uri == null)
             throw new IllegalArgumentException("Invalid path " + path + ": file not found.");
-        ImageIcon icon = new ImageIcon(uri);
-        iconCache.put(path, icon);
+        if (cachedBytes.get() >= MAX_CACHED_BYTES)
+            return new ImageIcon(readImage(uri));
+        // computeIfAbsent() blocks concurrent callers for the same path, so each image is only decoded once
+        return iconCache.computeIfAbsent(path, new Function<String, ImageIcon>()
+        {
+            @Override
+            public ImageIcon apply(String p)
+            {
+                BufferedImage img = readImage(uri);
+                cachedBytes.addAndGet(4L * img.getWidth() * img.getHeight());
+                return new ImageIcon(img);
+            }
+        });
+    }
+
+    /**
+     * Returns the image for a tile of the given color, without building its path each time
+     *
+     * @param c
+     *            the tile color
+     * @return the image for a tile of that color
+     */
+    public static ImageIcon getTileIcon(Color c)
+    {
+        ImageIcon icon = tileIcons[c.ordinal()];
+        if (icon == null)
+        {
+            // Racing threads would store the same cached icon, so no locking is needed
+            icon = getImageIcon("/img/" + c.name() + ".png");
+            tileIcons[c.ordinal()] = icon;
+        }
         return icon;
     }
+
+    /**
+     * Decodes an image with ImageIO, which (unlike the ImageIcon URL constructor) does not go through a MediaTracker
+     *
+     * @param uri
+     *            the location of the image
+     * @return the fully decoded image
+     * @throws UncheckedIOException
+     *             if the image cannot be read
+     */
+    private static BufferedImage readImage(java.net.URL uri)
+    {
+        try
+        {
+            BufferedImage img = ImageIO.read(uri);
+            if (img == null)
+                throw new IOException("No decoder for " + uri);
+            return img;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
 }